@@ -0,0 +1,194 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * A move generator that keeps the adjacency of every node as fixed-width bitsets, one per
+ * {@link Ticket}. Node {@code n} is bit {@code n % 64} of word {@code n / 64}, so the 199 station
+ * standard map takes four longs per node and ticket.
+ * <br>
+ * Destinations for a ticket are then the adjacency bitset of the source with the occupied nodes
+ * masked out. The bitsets take {@code (maxNode + 1)^2} bits per ticket, so they are only used up
+ * to {@link MoveGenerator#BITBOARD_MAX_NODE}, see {@link MoveGenerator#of(CompactGraph)}.
+ */
+final class BitboardMoveGenerator extends MoveGenerator {
+
+	private final int words;
+	// adjacency[ticket][node * words + word]
+	private final long[][] adjacency;
+
+	BitboardMoveGenerator(@Nonnull CompactGraph graph, @Nonnull MoveTable moveTable) {
+		super(graph, moveTable);
+		if (graph.maxNode() > BITBOARD_MAX_NODE)
+			throw new IllegalArgumentException("Node " + graph.maxNode() + " is too large for bitsets");
+		this.words = words();
+		this.adjacency = new long[TICKETS.length][(graph.maxNode() + 1) * words];
+		for (int index = 0; index < graph.nodeCount(); index++) {
+			int node = graph.node(index);
+			for (int edge = graph.start(index); edge < graph.start(index + 1); edge++) {
+				int destination = graph.node(graph.neighbour(edge));
+				for (Ticket ticket : TICKETS)
+					if (takes(ticket, graph.transports(edge))) {
+						adjacency[ticket.ordinal()][node * words + (destination >>> 6)] |=
+								1L << destination;
+					}
+			}
+		}
+	}
+
+	@Override public boolean reaches(@Nonnull Ticket ticket, int source, int destination) {
+		return contains(source) && contains(destination) &&
+				(adjacency[ticket.ordinal()][source * words + (destination >>> 6)]
+						& 1L << destination) != 0;
+	}
+
+	@Override public boolean hasSingleMove(int source, @Nonnull int[] tickets,
+	                                       @Nonnull long[] occupied) {
+		checkNode(source);
+		for (Ticket ticket : TICKETS)
+			if (tickets[ticket.ordinal()] != 0 && reachesAny(ticket, source, occupied)) return true;
+		return false;
+	}
+
+	@Override public boolean hasDoubleMove(int source, @Nonnull int[] tickets,
+	                                       @Nonnull long[] occupied) {
+		checkNode(source);
+		if (tickets[Ticket.DOUBLE.ordinal()] == 0) return false;
+		for (Ticket first : TICKETS) {
+			if (tickets[first.ordinal()] == 0) continue;
+			long[] reachable = adjacency[first.ordinal()];
+			for (int w = 0; w < words; w++) {
+				long bits = reachable[source * words + w] & ~occupied[w];
+				while (bits != 0) {
+					int destination1 = (w << 6) + Long.numberOfTrailingZeros(bits);
+					if (hasSecondHop(first, destination1, tickets, occupied)) return true;
+					bits &= bits - 1;
+				}
+			}
+		}
+		return false;
+	}
+
+	private boolean reachesAny(Ticket ticket, int source, long[] occupied) {
+		long[] reachable = adjacency[ticket.ordinal()];
+		for (int w = 0; w < words; w++)
+			if ((reachable[source * words + w] & ~occupied[w]) != 0) return true;
+		return false;
+	}
+
+	@Override public void singleMoves(@Nonnull Piece piece, int source, @Nonnull int[] tickets,
+	                                  @Nonnull long[] occupied, @Nonnull MoveList out) {
+		checkNode(source);
+		for (Ticket ticket : TICKETS) {
+			if (tickets[ticket.ordinal()] == 0) continue;
+			long[] reachable = adjacency[ticket.ordinal()];
+			for (int w = 0; w < words; w++) {
+				long bits = reachable[source * words + w] & ~occupied[w];
+				while (bits != 0) {
+					int destination = (w << 6) + Long.numberOfTrailingZeros(bits);
+					out.add(MoveCodec.single(piece, source, ticket, destination));
+					bits &= bits - 1;
+				}
+			}
+		}
+	}
+
+	// first hops with different tickets often land on the same intermediate node, so the second
+	// hops of every intermediate node are found once and combined with each first hop to it
+	@Override public void doubleMoves(@Nonnull Piece piece, int source, @Nonnull int[] tickets,
+	                                  @Nonnull long[] occupied, @Nonnull MoveList out) {
+		checkNode(source);
+		if (tickets[Ticket.DOUBLE.ordinal()] == 0) return;
+		var secondHops = new MoveList(32);
+		for (int w1 = 0; w1 < words; w1++) {
+			long intermediates = 0;
+			for (Ticket first : TICKETS)
+				if (tickets[first.ordinal()] != 0)
+					intermediates |= adjacency[first.ordinal()][source * words + w1];
+			intermediates &= ~occupied[w1];
+			while (intermediates != 0) {
+				int destination1 = (w1 << 6) + Long.numberOfTrailingZeros(intermediates);
+				secondHops.clear();
+				secondHops(destination1, tickets, occupied, secondHops);
+				for (Ticket first : TICKETS) {
+					if (tickets[first.ordinal()] == 0 || !reaches(first, source, destination1))
+						continue;
+					long prefix = MoveCodec.single(piece, source, first, destination1);
+					// with only one of the first ticket left, it cannot be spent again
+					boolean spent = tickets[first.ordinal()] == 1;
+					for (int i = 0; i < secondHops.size(); i++) {
+						long hop = secondHops.get(i);
+						if (spent && MoveCodec.ticket2(hop) == first) continue;
+						out.add(prefix | hop);
+					}
+				}
+				intermediates &= intermediates - 1;
+			}
+		}
+	}
+
+	@Override public void doubleMovePrefixes(@Nonnull Piece piece, int source, @Nonnull int[] tickets,
+	                                         @Nonnull long[] occupied, @Nonnull MoveList out) {
+		checkNode(source);
+		if (tickets[Ticket.DOUBLE.ordinal()] == 0) return;
+		for (Ticket first : TICKETS) {
+			if (tickets[first.ordinal()] == 0) continue;
+			long[] reachable = adjacency[first.ordinal()];
+			for (int w = 0; w < words; w++) {
+				long bits = reachable[source * words + w] & ~occupied[w];
+				while (bits != 0) {
+					int destination1 = (w << 6) + Long.numberOfTrailingZeros(bits);
+					if (hasSecondHop(first, destination1, tickets, occupied))
+						out.add(MoveCodec.single(piece, source, first, destination1));
+					bits &= bits - 1;
+				}
+			}
+		}
+	}
+
+	@Override public void doubleMovesAfter(long prefix, @Nonnull int[] tickets,
+	                                       @Nonnull long[] occupied, @Nonnull MoveList out) {
+		int destination1 = checkPrefix(prefix);
+		checkNode(destination1);
+		Ticket first = MoveCodec.ticket1(prefix);
+		for (Ticket second : TICKETS) {
+			int left = tickets[second.ordinal()] - (second == first ? 1 : 0);
+			if (left <= 0) continue;
+			long[] reachable = adjacency[second.ordinal()];
+			for (int w = 0; w < words; w++) {
+				long bits = reachable[destination1 * words + w] & ~occupied[w];
+				while (bits != 0) {
+					int destination2 = (w << 6) + Long.numberOfTrailingZeros(bits);
+					out.add(prefix | MoveCodec.secondHop(second, destination2));
+					bits &= bits - 1;
+				}
+			}
+		}
+	}
+
+	// all second hops from an intermediate node with any held ticket, see MoveCodec#secondHop
+	private void secondHops(int destination1, int[] tickets, long[] occupied, MoveList out) {
+		for (Ticket second : TICKETS) {
+			if (tickets[second.ordinal()] == 0) continue;
+			long[] reachable = adjacency[second.ordinal()];
+			for (int w = 0; w < words; w++) {
+				long bits = reachable[destination1 * words + w] & ~occupied[w];
+				while (bits != 0) {
+					int destination2 = (w << 6) + Long.numberOfTrailingZeros(bits);
+					out.add(MoveCodec.secondHop(second, destination2));
+					bits &= bits - 1;
+				}
+			}
+		}
+	}
+
+	private boolean hasSecondHop(Ticket first, int destination1, int[] tickets, long[] occupied) {
+		for (Ticket second : TICKETS) {
+			if (tickets[second.ordinal()] - (second == first ? 1 : 0) <= 0) continue;
+			if (reachesAny(second, destination1, occupied)) return true;
+		}
+		return false;
+	}
+}
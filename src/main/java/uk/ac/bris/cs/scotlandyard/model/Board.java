@@ -1,9 +1,14 @@
 package uk.ac.bris.cs.scotlandyard.model;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.random.RandomGenerator;
+import java.util.stream.Stream;
 
 import javax.annotation.Nonnull;
 
@@ -44,6 +49,29 @@ public interface Board {
 	 * @return the ticket board of the given player; empty if the player is not part of the game
 	 */
 	@Nonnull Optional<TicketBoard> getPlayerTickets(Piece piece);
+	/**
+	 * Same as {@link #getDetectiveLocation(Detective)} without boxing; implementations answer
+	 * it without allocating.
+	 *
+	 * @param piece the player piece
+	 * @return the location of the given detective; -1 for MrX and for a detective that is not
+	 * part of the game
+	 */
+	default int locationOf(@Nonnull Piece piece) {
+		if (!(piece instanceof Detective)) return -1;
+		return getDetectiveLocation((Detective) piece).orElse(-1);
+	}
+	/**
+	 * Same as {@link #getPlayerTickets(Piece)} without the ticket board; implementations answer
+	 * it without allocating.
+	 *
+	 * @param piece the player piece
+	 * @param ticket the ticket
+	 * @return how many of the ticket the player holds; 0 if the player is not part of the game
+	 */
+	default int ticketCount(@Nonnull Piece piece, @Nonnull Ticket ticket) {
+		return getPlayerTickets(piece).map(board -> board.getCount(ticket)).orElse(0);
+	}
 	/**
 	 * @return MrX's travel log as a list of {@link LogEntry}s.
 	 */
@@ -62,8 +90,16 @@ public interface Board {
 
 	/**
 	 * Represents an on-going ScotlandYard game where moves by each player advances the game.
+	 * <br>
+	 * Game states are immutable: {@link #advance(Move)} returns a new state and leaves the one it
+	 * is called on as it was. Implementations must also be safe to publish and share between
+	 * threads without synchronisation, so a search can expand one state from many threads.
 	 */
 	interface GameState extends Board {
+		/**
+		 * Fan-outs of at least this many moves are expanded in parallel by {@link #expandAll()}
+		 */
+		int DEFAULT_PARALLEL_THRESHOLD = 64;
 		/**
 		 * Computes the next game state given a move from {@link #getAvailableMoves()} has been
 		 * chosen and supplied as the parameter
@@ -74,6 +110,76 @@ public interface Board {
 		 * {@link #getAvailableMoves()}
 		 */
 		@Nonnull GameState advance(Move move);
+		/**
+		 * Makes each of the moves in turn, as if by calling {@link #advance(Move)} on every state
+		 * along the way. Implementations may skip working out anything about the states in
+		 * between beyond whether the next move is legal, which makes replaying a recorded game
+		 * cheap.
+		 *
+		 * @param moves the moves to make, in order
+		 * @return the game state after the last move; this state if there are no moves
+		 * @throws IllegalArgumentException if a move is not available in the state it is made in
+		 */
+		@Nonnull default GameState advanceAll(@Nonnull List<Move> moves) {
+			GameState state = this;
+			for (Move move : moves) state = state.advance(move);
+			return state;
+		}
+		/**
+		 * Equal positions have equal keys, which makes the key usable for transposition tables
+		 * and for spotting repeated positions. See {@link Zobrist} for what goes into a key.
+		 *
+		 * @return the Zobrist key of this game state
+		 */
+		default long zobristKey() { return Zobrist.hash(this); }
+		/**
+		 * Same as {@link #expandAll(int)} with {@link #DEFAULT_PARALLEL_THRESHOLD}.
+		 *
+		 * @return every available move mapped to the state it leads to
+		 */
+		@Nonnull default ImmutableMap<Move, GameState> expandAll() {
+			return expandAll(DEFAULT_PARALLEL_THRESHOLD);
+		}
+		/**
+		 * Advances this state by each of {@link #getAvailableMoves()} in one call. Fan-outs of at
+		 * least the threshold, such as MrX's double moves, are expanded on the common fork/join
+		 * pool; implementations may share work between the successors.
+		 *
+		 * @param parallelThreshold the smallest fan-out to expand in parallel, must be positive
+		 * @return every available move mapped to the state it leads to, in the order of
+		 * {@link #getAvailableMoves()}
+		 */
+		@Nonnull default ImmutableMap<Move, GameState> expandAll(int parallelThreshold) {
+			return Successors.expand(getAvailableMoves().asList(), this::advance, parallelThreshold);
+		}
+		/**
+		 * Visits the same moves as {@link #getAvailableMoves()}, implementations may do so
+		 * without building the set.
+		 *
+		 * @param action the action to run for every available move
+		 */
+		default void forEachAvailableMove(@Nonnull Consumer<? super Move> action) {
+			getAvailableMoves().forEach(action);
+		}
+		/**
+		 * @return the moves of {@link #getAvailableMoves()} as a stream; implementations may
+		 * stream them without building the set
+		 */
+		@Nonnull default Stream<Move> availableMoveStream() { return getAvailableMoves().stream(); }
+		/**
+		 * @return the number of moves in {@link #getAvailableMoves()}
+		 */
+		default int countAvailableMoves() { return getAvailableMoves().size(); }
+		/**
+		 * @param random the source of randomness
+		 * @return a uniformly chosen move of {@link #getAvailableMoves()}; empty if there are no
+		 * available moves
+		 */
+		@Nonnull default Optional<Move> randomAvailableMove(@Nonnull RandomGenerator random) {
+			var moves = getAvailableMoves();
+			if (moves.isEmpty()) return Optional.empty();
+			return Optional.of(moves.asList().get(random.nextInt(moves.size())));
+		}
 	}
 
 
@@ -0,0 +1,244 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.ImmutableValueGraph;
+import com.google.common.graph.MutableValueGraph;
+import com.google.common.graph.ValueGraph;
+import com.google.common.graph.ValueGraphBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+/**
+ * The game graph in compressed sparse row form. Nodes are numbered densely from 0 in ascending
+ * order of their station, see {@link #indexOf(int)} and {@link #node(int)}. The neighbours of the
+ * node with index {@code i} are {@link #neighbour(int)} of the edges from {@link #start(int)} of
+ * {@code i} up to {@link #start(int)} of {@code i + 1}, in ascending order; every edge carries
+ * its transports as a bitmask of {@link #mask(Transport)}. An undirected edge is stored once from
+ * each end.
+ * <br>
+ * Nothing is boxed and all of it sits in a few flat arrays, so walking the graph stays in cache
+ * for maps far larger than the standard one.
+ * <br>
+ * Instances are immutable and are normally obtained through {@link GameSetup#compactGraph()}.
+ */
+public final class CompactGraph {
+
+	private static final Transport[] TRANSPORTS = Transport.values();
+
+	// station of each index, ascending
+	private final int[] nodes;
+	// index of each station, -1 for stations not in the graph
+	private final int[] indices;
+	// edges of index i are start[i] until start[i + 1]
+	private final int[] start;
+	private final int[] neighbours;
+	private final byte[] transports;
+
+	/**
+	 * @param graph the game graph; all nodes must be in the range {@code [0, }
+	 * {@link MoveCodec#MAX_NODE}{@code ]}
+	 */
+	public CompactGraph(@Nonnull ValueGraph<Integer, ImmutableSet<Transport>> graph) {
+		this.nodes = new int[graph.nodes().size()];
+		int n = 0;
+		for (int node : graph.nodes()) nodes[n++] = checkNode(node);
+		Arrays.sort(nodes);
+		this.indices = indices(nodes);
+		this.start = new int[nodes.length + 1];
+		for (int i = 0; i < nodes.length; i++)
+			start[i + 1] = start[i] + graph.adjacentNodes(nodes[i]).size();
+		this.neighbours = new int[start[nodes.length]];
+		this.transports = new byte[neighbours.length];
+		for (int i = 0; i < nodes.length; i++) {
+			int edge = start[i];
+			for (int neighbour : graph.adjacentNodes(nodes[i])) neighbours[edge++] = indices[neighbour];
+			// indices follow the stations, so sorting the indices sorts the stations too
+			Arrays.sort(neighbours, start[i], edge);
+			for (int e = start[i]; e < edge; e++) {
+				var values = graph.edgeValueOrDefault(nodes[i], nodes[neighbours[e]], ImmutableSet.of());
+				int mask = 0;
+				for (Transport transport : values) mask |= mask(transport);
+				transports[e] = (byte) mask;
+			}
+		}
+	}
+
+	/**
+	 * Takes the arrays as they are, after checking they make an undirected graph whose edges all
+	 * carry some transport; see {@link MapFile}.
+	 *
+	 * @param nodes the stations of each index, ascending
+	 * @param start the first edge of each index, followed by the number of edges
+	 * @param neighbours the index each edge leads to, ascending for each node
+	 * @param transports the transports along each edge
+	 */
+	CompactGraph(int[] nodes, int[] start, int[] neighbours, byte[] transports) {
+		if (start.length != nodes.length + 1 || start[0] != 0
+				|| start[nodes.length] != neighbours.length || transports.length != neighbours.length)
+			throw new IllegalArgumentException("Edge arrays do not match " + nodes.length + " nodes");
+		for (int i = 0; i < nodes.length; i++) {
+			checkNode(nodes[i]);
+			if (i > 0 && nodes[i] <= nodes[i - 1])
+				throw new IllegalArgumentException("Nodes are not ascending at " + nodes[i]);
+			if (start[i + 1] < start[i])
+				throw new IllegalArgumentException("Edges of node " + nodes[i] + " end before they start");
+			for (int edge = start[i]; edge < start[i + 1]; edge++) {
+				if (neighbours[edge] < 0 || neighbours[edge] >= nodes.length
+						|| edge > start[i] && neighbours[edge] <= neighbours[edge - 1])
+					throw new IllegalArgumentException("Bad neighbour of node " + nodes[i]);
+				if (transports[edge] <= 0 || transports[edge] >= 1 << TRANSPORTS.length)
+					throw new IllegalArgumentException("Bad transports " + transports[edge]
+							+ " on an edge of node " + nodes[i]);
+			}
+		}
+		this.nodes = nodes;
+		this.indices = indices(nodes);
+		this.start = start;
+		this.neighbours = neighbours;
+		this.transports = transports;
+		// neighbours are known to be ascending now, so edge(int, int) can look for the way back
+		for (int i = 0; i < nodes.length; i++)
+			for (int edge = start[i]; edge < start[i + 1]; edge++) {
+				int back = edge(neighbours[edge], i);
+				if (back == -1 || transports[back] != transports[edge])
+					throw new IllegalArgumentException("Edge from " + nodes[i] + " to "
+							+ nodes[neighbours[edge]] + " is not the same from both ends");
+			}
+	}
+
+	/**
+	 * @param node the node
+	 * @return the node, if moves to and from it can be encoded, see {@link MoveCodec#MAX_NODE}
+	 * @throws IllegalArgumentException if the node is negative or above {@link MoveCodec#MAX_NODE}
+	 */
+	static int checkNode(int node) {
+		if (node < 0) throw new IllegalArgumentException("Negative node " + node);
+		if (node > MoveCodec.MAX_NODE)
+			throw new IllegalArgumentException("Node " + node + " is above " + MoveCodec.MAX_NODE
+					+ ", the largest node a move can refer to");
+		return node;
+	}
+
+	private static int[] indices(int[] nodes) {
+		int[] indices = new int[nodes.length == 0 ? 0 : nodes[nodes.length - 1] + 1];
+		Arrays.fill(indices, -1);
+		for (int i = 0; i < nodes.length; i++) {
+			if (indices[nodes[i]] != -1) throw new IllegalArgumentException("Duplicate node " + nodes[i]);
+			indices[nodes[i]] = i;
+		}
+		return indices;
+	}
+
+	/**
+	 * @param transport the transport
+	 * @return the bit of the transport in an edge's transports
+	 */
+	public static int mask(@Nonnull Transport transport) { return 1 << transport.ordinal(); }
+
+	/**
+	 * @param ticket the ticket
+	 * @return the transports the ticket can be used on, as a mask; every transport for a
+	 * {@link Ticket#SECRET}, none for a {@link Ticket#DOUBLE}
+	 */
+	public static int mask(@Nonnull Ticket ticket) {
+		int mask = 0;
+		for (Transport transport : TRANSPORTS)
+			if (ticket == Ticket.SECRET || transport.requiredTicket() == ticket) mask |= mask(transport);
+		return mask;
+	}
+
+	/**
+	 * @return the graph as the Guava graph {@link GameSetup#graph} takes
+	 */
+	@Nonnull public ImmutableValueGraph<Integer, ImmutableSet<Transport>> toValueGraph() {
+		// edges with the same transports share a set
+		var sets = new ArrayList<ImmutableSet<Transport>>(1 << TRANSPORTS.length);
+		for (int mask = 0; mask < 1 << TRANSPORTS.length; mask++) {
+			var set = ImmutableSet.<Transport>builder();
+			for (Transport transport : TRANSPORTS) if ((mask & mask(transport)) != 0) set.add(transport);
+			sets.add(set.build());
+		}
+		MutableValueGraph<Integer, ImmutableSet<Transport>> graph =
+				ValueGraphBuilder.undirected().expectedNodeCount(nodes.length).build();
+		for (int node : nodes) graph.addNode(node);
+		for (int i = 0; i < nodes.length; i++)
+			for (int edge = start[i]; edge < start[i + 1]; edge++)
+				// each undirected edge is stored from both ends, add it from the lower one
+				if (neighbours[edge] > i)
+					graph.putEdgeValue(nodes[i], nodes[neighbours[edge]], sets.get(transports[edge]));
+		return ImmutableValueGraph.copyOf(graph);
+	}
+
+	/**
+	 * @return the number of nodes
+	 */
+	public int nodeCount() { return nodes.length; }
+
+	/**
+	 * @return the number of undirected edges
+	 */
+	public int edgeCount() { return neighbours.length / 2; }
+
+	/**
+	 * @return the largest station in the graph, -1 if there are none
+	 */
+	public int maxNode() { return indices.length - 1; }
+
+	/**
+	 * @param node the station
+	 * @return whether the station is part of the graph
+	 */
+	public boolean contains(int node) { return indexOf(node) >= 0; }
+
+	/**
+	 * @param node the station
+	 * @return the dense index of the station; -1 if it is not part of the graph
+	 */
+	public int indexOf(int node) { return node >= 0 && node < indices.length ? indices[node] : -1; }
+
+	/**
+	 * @param index the dense index
+	 * @return the station at the index
+	 */
+	public int node(int index) { return nodes[index]; }
+
+	/**
+	 * @param index the dense index of a node, or {@link #nodeCount()} for the end of the last
+	 * @return the first edge of the node
+	 */
+	public int start(int index) { return start[index]; }
+
+	/**
+	 * @param index the dense index
+	 * @return the number of neighbours of the node
+	 */
+	public int degree(int index) { return start[index + 1] - start[index]; }
+
+	/**
+	 * @param index the dense index of a node
+	 * @param neighbour the dense index of another node
+	 * @return the edge from the node to the neighbour; -1 if they are not adjacent
+	 */
+	public int edge(int index, int neighbour) {
+		int edge = Arrays.binarySearch(neighbours, start[index], start[index + 1], neighbour);
+		return edge < 0 ? -1 : edge;
+	}
+
+	/**
+	 * @param edge the edge
+	 * @return the dense index of the node the edge leads to
+	 */
+	public int neighbour(int edge) { return neighbours[edge]; }
+
+	/**
+	 * @param edge the edge
+	 * @return the transports along the edge, as bits of {@link #mask(Transport)}
+	 */
+	public int transports(int edge) { return transports[edge]; }
+}
@@ -0,0 +1,151 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * A move generator that walks the edges of a {@link CompactGraph} and checks each transport mask
+ * against the tickets held. It keeps nothing beyond the graph itself, so it works for maps of any
+ * size; see {@link MoveGenerator#of(CompactGraph)}.
+ */
+final class CompactMoveGenerator extends MoveGenerator {
+
+	CompactMoveGenerator(@Nonnull CompactGraph graph, @Nonnull MoveTable moveTable) {
+		super(graph, moveTable);
+	}
+
+	@Override public boolean reaches(@Nonnull Ticket ticket, int source, int destination) {
+		int from = graph.indexOf(source), to = graph.indexOf(destination);
+		if (from < 0 || to < 0) return false;
+		int edge = graph.edge(from, to);
+		return edge >= 0 && takes(ticket, graph.transports(edge));
+	}
+
+	@Override public boolean hasSingleMove(int source, @Nonnull int[] tickets,
+	                                       @Nonnull long[] occupied) {
+		int from = index(source);
+		for (Ticket ticket : TICKETS)
+			if (tickets[ticket.ordinal()] != 0 && reachesAny(ticket, from, occupied)) return true;
+		return false;
+	}
+
+	@Override public boolean hasDoubleMove(int source, @Nonnull int[] tickets,
+	                                       @Nonnull long[] occupied) {
+		int from = index(source);
+		if (tickets[Ticket.DOUBLE.ordinal()] == 0) return false;
+		for (Ticket first : TICKETS) {
+			if (tickets[first.ordinal()] == 0) continue;
+			for (int edge = graph.start(from); edge < graph.start(from + 1); edge++) {
+				int via = graph.neighbour(edge);
+				if (takes(first, graph.transports(edge)) && !isOccupied(graph.node(via), occupied)
+						&& hasSecondHop(first, via, tickets, occupied)) return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean reachesAny(Ticket ticket, int from, long[] occupied) {
+		for (int edge = graph.start(from); edge < graph.start(from + 1); edge++)
+			if (takes(ticket, graph.transports(edge))
+					&& !isOccupied(graph.node(graph.neighbour(edge)), occupied)) return true;
+		return false;
+	}
+
+	@Override public void singleMoves(@Nonnull Piece piece, int source, @Nonnull int[] tickets,
+	                                  @Nonnull long[] occupied, @Nonnull MoveList out) {
+		int from = index(source);
+		for (Ticket ticket : TICKETS) {
+			if (tickets[ticket.ordinal()] == 0) continue;
+			for (int edge = graph.start(from); edge < graph.start(from + 1); edge++) {
+				int destination = graph.node(graph.neighbour(edge));
+				if (takes(ticket, graph.transports(edge)) && !isOccupied(destination, occupied))
+					out.add(MoveCodec.single(piece, source, ticket, destination));
+			}
+		}
+	}
+
+	// the second hops of every intermediate node are found once and combined with each first hop
+	// to it, same as the bitboard generator
+	@Override public void doubleMoves(@Nonnull Piece piece, int source, @Nonnull int[] tickets,
+	                                  @Nonnull long[] occupied, @Nonnull MoveList out) {
+		int from = index(source);
+		if (tickets[Ticket.DOUBLE.ordinal()] == 0) return;
+		var secondHops = new MoveList(32);
+		for (int edge = graph.start(from); edge < graph.start(from + 1); edge++) {
+			int via = graph.neighbour(edge), destination1 = graph.node(via);
+			if (isOccupied(destination1, occupied)) continue;
+			boolean found = false;
+			for (Ticket first : TICKETS) {
+				if (tickets[first.ordinal()] == 0 || !takes(first, graph.transports(edge))) continue;
+				if (!found) {
+					secondHops.clear();
+					secondHops(via, tickets, occupied, secondHops);
+					found = true;
+				}
+				long prefix = MoveCodec.single(piece, source, first, destination1);
+				// with only one of the first ticket left, it cannot be spent again
+				boolean spent = tickets[first.ordinal()] == 1;
+				for (int i = 0; i < secondHops.size(); i++) {
+					long hop = secondHops.get(i);
+					if (spent && MoveCodec.ticket2(hop) == first) continue;
+					out.add(prefix | hop);
+				}
+			}
+		}
+	}
+
+	@Override public void doubleMovePrefixes(@Nonnull Piece piece, int source, @Nonnull int[] tickets,
+	                                         @Nonnull long[] occupied, @Nonnull MoveList out) {
+		int from = index(source);
+		if (tickets[Ticket.DOUBLE.ordinal()] == 0) return;
+		for (Ticket first : TICKETS) {
+			if (tickets[first.ordinal()] == 0) continue;
+			for (int edge = graph.start(from); edge < graph.start(from + 1); edge++) {
+				int via = graph.neighbour(edge), destination1 = graph.node(via);
+				if (takes(first, graph.transports(edge)) && !isOccupied(destination1, occupied)
+						&& hasSecondHop(first, via, tickets, occupied))
+					out.add(MoveCodec.single(piece, source, first, destination1));
+			}
+		}
+	}
+
+	@Override public void doubleMovesAfter(long prefix, @Nonnull int[] tickets,
+	                                       @Nonnull long[] occupied, @Nonnull MoveList out) {
+		int via = index(checkPrefix(prefix));
+		Ticket first = MoveCodec.ticket1(prefix);
+		for (Ticket second : TICKETS) {
+			if (tickets[second.ordinal()] - (second == first ? 1 : 0) <= 0) continue;
+			for (int edge = graph.start(via); edge < graph.start(via + 1); edge++) {
+				int destination2 = graph.node(graph.neighbour(edge));
+				if (takes(second, graph.transports(edge)) && !isOccupied(destination2, occupied))
+					out.add(prefix | MoveCodec.secondHop(second, destination2));
+			}
+		}
+	}
+
+	// all second hops from an intermediate node with any held ticket, see MoveCodec#secondHop
+	private void secondHops(int via, int[] tickets, long[] occupied, MoveList out) {
+		for (Ticket second : TICKETS) {
+			if (tickets[second.ordinal()] == 0) continue;
+			for (int edge = graph.start(via); edge < graph.start(via + 1); edge++) {
+				int destination2 = graph.node(graph.neighbour(edge));
+				if (takes(second, graph.transports(edge)) && !isOccupied(destination2, occupied))
+					out.add(MoveCodec.secondHop(second, destination2));
+			}
+		}
+	}
+
+	private boolean hasSecondHop(Ticket first, int via, int[] tickets, long[] occupied) {
+		for (Ticket second : TICKETS) {
+			if (tickets[second.ordinal()] - (second == first ? 1 : 0) <= 0) continue;
+			if (reachesAny(second, via, occupied)) return true;
+		}
+		return false;
+	}
+
+	private int index(int node) {
+		checkNode(node);
+		return graph.indexOf(node);
+	}
+}
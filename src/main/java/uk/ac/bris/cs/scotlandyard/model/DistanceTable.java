@@ -0,0 +1,126 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+/**
+ * Shortest distances, in moves, between every pair of nodes of a graph when only some of the
+ * transports may be used, such as {@link #ALL} or just {@link Transport#TAXI}. A combination of
+ * transports is a mask of {@link CompactGraph#mask(Transport)} bits, so there are 16 of them.
+ * <br>
+ * The distances of a combination are worked out with a breadth first search from every node in
+ * parallel the first time the combination is asked for, and kept as a matrix of bytes; after
+ * that every lookup is two array reads. Distances larger than {@link #MAX_DISTANCE} are
+ * reported as {@link #MAX_DISTANCE}.
+ * <br>
+ * Instances are thread safe and are normally obtained through {@link GameSetup#distanceTable()}.
+ */
+public final class DistanceTable {
+
+	/**
+	 * Every transport, including ferries
+	 */
+	public static final int ALL = (1 << Transport.values().length) - 1;
+	/**
+	 * The transports detectives have tickets for, which leaves out ferries
+	 */
+	public static final int DETECTIVE = ALL & ~CompactGraph.mask(Transport.FERRY);
+	/**
+	 * The distance between nodes that cannot reach each other
+	 */
+	public static final int UNREACHABLE = -1;
+	/**
+	 * The largest distance that is stored exactly
+	 */
+	public static final int MAX_DISTANCE = 254;
+
+	private static final byte NONE = (byte) 0xFF;
+
+	private final CompactGraph graph;
+	private final Matrix[] matrices = new Matrix[ALL + 1];
+
+	// the final field makes the distances visible to every thread that sees the matrix
+	private static final class Matrix {
+		private final byte[] distances;
+		private Matrix(byte[] distances) { this.distances = distances; }
+	}
+
+	/**
+	 * @param graph the game graph
+	 */
+	public DistanceTable(@Nonnull CompactGraph graph) { this.graph = graph; }
+
+	/**
+	 * @param from the node to start at
+	 * @param to the node to get to
+	 * @return the fewest moves between the nodes using any transport; {@link #UNREACHABLE} if
+	 * there is no way
+	 */
+	public int distance(int from, int to) { return distance(from, to, ALL); }
+
+	/**
+	 * @param from the node to start at
+	 * @param to the node to get to
+	 * @param transports the transports that may be used, as a mask of
+	 * {@link CompactGraph#mask(Transport)} bits
+	 * @return the fewest moves between the nodes using only the transports; {@link #UNREACHABLE}
+	 * if there is no way
+	 */
+	public int distance(int from, int to, int transports) {
+		int n = graph.nodeCount();
+		byte distance = matrix(transports).distances[index(from) * n + index(to)];
+		return distance == NONE ? UNREACHABLE : distance & 0xFF;
+	}
+
+	/**
+	 * @param transports the transports that may be used, the distances are built now if they
+	 * were not yet
+	 */
+	public void prepare(int transports) { matrix(transports); }
+
+	private int index(int node) {
+		int index = graph.indexOf(node);
+		if (index < 0)
+			throw new IllegalArgumentException("Node " + node + " is not an element of this graph");
+		return index;
+	}
+
+	private Matrix matrix(int transports) {
+		if (transports < 0 || transports > ALL)
+			throw new IllegalArgumentException("Unknown transports " + transports);
+		// built on first use without locking, a matrix built twice over is equal
+		var matrix = matrices[transports];
+		if (matrix == null) matrices[transports] = matrix = new Matrix(build(transports));
+		return matrix;
+	}
+
+	private byte[] build(int transports) {
+		int n = graph.nodeCount();
+		if ((long) n * n > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException(n + " nodes are too many for a distance matrix");
+		byte[] distances = new byte[n * n];
+		Arrays.fill(distances, NONE);
+		IntStream.range(0, n).parallel().forEach(source -> {
+			int[] queue = new int[n];
+			int head = 0, tail = 0, row = source * n;
+			distances[row + source] = 0;
+			queue[tail++] = source;
+			while (head < tail) {
+				int index = queue[head++];
+				int next = Math.min((distances[row + index] & 0xFF) + 1, MAX_DISTANCE);
+				for (int edge = graph.start(index); edge < graph.start(index + 1); edge++) {
+					int neighbour = graph.neighbour(edge);
+					if ((graph.transports(edge) & transports) == 0 || distances[row + neighbour] != NONE)
+						continue;
+					distances[row + neighbour] = (byte) next;
+					queue[tail++] = neighbour;
+				}
+			}
+		});
+		return distances;
+	}
+}
@@ -1,11 +1,13 @@
 package uk.ac.bris.cs.scotlandyard.model;
 
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.graph.ImmutableValueGraph;
 
 import java.io.Serializable;
 import java.util.Objects;
+import java.util.function.Supplier;
 
 import javax.annotation.Nonnull;
 
@@ -25,11 +27,60 @@ public final class GameSetup implements Serializable {
 	 * MrX reveal moves; false is hidden, true is reveal
 	 */
 	public final ImmutableList<Boolean> moves;
+	private final transient Supplier<CompactGraph> compactGraph;
+	private final transient Supplier<DistanceTable> distanceTable =
+			Suppliers.memoize(() -> new DistanceTable(compactGraph()));
+	private final transient Supplier<ReachabilityTable> reachabilityTable =
+			Suppliers.memoize(() -> new ReachabilityTable(compactGraph()));
+	private final transient Supplier<MoveGenerator> moveGenerator =
+			Suppliers.memoize(() -> MoveGenerator.of(compactGraph()));
+	/**
+	 * @param graph the game graph; nodes must be in the range {@code [0, }
+	 * {@link MoveCodec#MAX_NODE}{@code ]}, so that moves between them can be encoded
+	 * @param moves MrX reveal moves; false is hidden, true is reveal
+	 */
 	public GameSetup(@Nonnull ImmutableValueGraph<Integer, ImmutableSet<Transport>> graph,
 	                 @Nonnull ImmutableList<Boolean> moves) {
 		this.graph = Objects.requireNonNull(graph);
 		this.moves = Objects.requireNonNull(moves);
+		// checked here, the compact graph is only built on first use
+		for (int node : graph.nodes()) CompactGraph.checkNode(node);
+		this.compactGraph = Suppliers.memoize(() -> new CompactGraph(graph));
+	}
+	/**
+	 * Plays on a graph already in compact form, such as one from
+	 * {@link ScotlandYard#readCompactGraph(java.io.Reader)} or a {@link MapFile}. The engine plays
+	 * on the given graph as its {@link #compactGraph()}; {@link #graph} is a Guava copy of it.
+	 *
+	 * @param graph the game graph
+	 * @param moves MrX reveal moves; false is hidden, true is reveal
+	 */
+	public GameSetup(@Nonnull CompactGraph graph, @Nonnull ImmutableList<Boolean> moves) {
+		this.graph = graph.toValueGraph();
+		this.moves = Objects.requireNonNull(moves);
+		this.compactGraph = Suppliers.ofInstance(graph);
 	}
+	/**
+	 * @return {@link #graph} in compressed sparse row form, built on first use
+	 */
+	@Nonnull public CompactGraph compactGraph() { return compactGraph.get(); }
+	/**
+	 * @return the shortest distances between the nodes of {@link #graph}, made on first use
+	 */
+	@Nonnull public DistanceTable distanceTable() { return distanceTable.get(); }
+	/**
+	 * @return the nodes players can reach with their tickets in {@link #graph}, made on first use
+	 */
+	@Nonnull public ReachabilityTable reachabilityTable() { return reachabilityTable.get(); }
+	/**
+	 * @return the move generator for {@link #graph}, built on first use; see
+	 * {@link MoveGenerator#of(CompactGraph)}
+	 */
+	@Nonnull public MoveGenerator moveGenerator() { return moveGenerator.get(); }
+	/**
+	 * @return the interned single moves along the edges of {@link #graph}, built on first use
+	 */
+	@Nonnull public MoveTable moveTable() { return moveGenerator().moveTable(); }
 	@Override public boolean equals(Object o) {
 		if (this == o) return true;
 		if (o == null || getClass() != o.getClass()) return false;
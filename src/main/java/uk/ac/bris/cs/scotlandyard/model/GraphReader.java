@@ -0,0 +1,189 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+/**
+ * Parses a graph in the text format of {@code graph.txt} straight into a {@link CompactGraph},
+ * see {@link ScotlandYard#readCompactGraph(Reader)}. The text is read through one fixed size
+ * buffer and numbers are parsed from it in place, so the only memory that grows is the edge
+ * list itself: three ints per edge line until the graph is built.
+ * <br>
+ * Lines are counted the way {@link ScotlandYard#readGraph(String)} counts them, blank lines
+ * included.
+ */
+final class GraphReader {
+
+	private static final Transport[] TRANSPORTS = Transport.values();
+	// neighbour indices are packed above the transport mask while the edges are sorted
+	private static final int MASK_BITS = TRANSPORTS.length;
+
+	private final Reader reader;
+	private final char[] buffer = new char[8192];
+	private final char[] word = new char[16];
+	private int position, limit, line = 1;
+
+	private GraphReader(Reader reader) { this.reader = reader; }
+
+	static CompactGraph read(Reader reader) throws IOException {
+		return new GraphReader(reader).read();
+	}
+
+	private CompactGraph read() throws IOException {
+		int numberOfNodes = readInt(), numberOfEdges = readInt();
+		endLine();
+		if (numberOfNodes < 0 || numberOfEdges < 0)
+			throw error("Negative number of nodes or edges");
+
+		int[] nodes = new int[Math.min(numberOfNodes, 1 << 16)];
+		int nodeCount = 0;
+		for (int i = 0; i < numberOfNodes; i++) {
+			if (blankLine()) continue;
+			if (nodeCount == nodes.length) nodes = Arrays.copyOf(nodes, nodes.length * 2);
+			nodes[nodeCount++] = readInt();
+			endLine();
+		}
+		// from, to and transport of each edge line
+		int[] edges = new int[3 * Math.min(numberOfEdges, 1 << 16)];
+		int edgeCount = 0;
+		for (int i = 0; i < numberOfEdges; i++) {
+			if (blankLine()) continue;
+			if (3 * edgeCount == edges.length) edges = Arrays.copyOf(edges, edges.length * 2);
+			int from = readInt(), to = readInt();
+			if (from == to) throw error("Edge from " + from + " to itself");
+			edges[3 * edgeCount] = from;
+			edges[3 * edgeCount + 1] = to;
+			edges[3 * edgeCount + 2] = readTransport();
+			edgeCount++;
+			endLine();
+		}
+		return build(nodes, nodeCount, edges, edgeCount);
+	}
+
+	private static CompactGraph build(int[] declared, int declaredCount, int[] edges, int edgeCount) {
+		// nodes only named by an edge are part of the graph too
+		int[] nodes = Arrays.copyOf(declared, declaredCount + 2 * edgeCount);
+		for (int e = 0; e < edgeCount; e++) {
+			nodes[declaredCount + 2 * e] = edges[3 * e];
+			nodes[declaredCount + 2 * e + 1] = edges[3 * e + 1];
+		}
+		Arrays.sort(nodes);
+		int n = 0;
+		for (int i = 0; i < nodes.length; i++) if (i == 0 || nodes[i] != nodes[i - 1]) nodes[n++] = nodes[i];
+		nodes = Arrays.copyOf(nodes, n);
+		if (n > 0) {
+			CompactGraph.checkNode(nodes[0]);
+			CompactGraph.checkNode(nodes[n - 1]);
+		}
+		if (n >= 1 << (Integer.SIZE - 1 - MASK_BITS))
+			throw new IllegalArgumentException(n + " nodes are too many");
+		int[] indices = new int[n == 0 ? 0 : nodes[n - 1] + 1];
+		for (int i = 0; i < n; i++) indices[nodes[i]] = i;
+
+		// both directions of every edge line, then the lines between the same nodes merged
+		int[] start = new int[n + 1];
+		for (int e = 0; e < edgeCount; e++) {
+			start[indices[edges[3 * e]] + 1]++;
+			start[indices[edges[3 * e + 1]] + 1]++;
+		}
+		for (int i = 0; i < n; i++) start[i + 1] += start[i];
+		int[] fill = Arrays.copyOf(start, n);
+		int[] packed = new int[2 * edgeCount];
+		for (int e = 0; e < edgeCount; e++) {
+			int a = indices[edges[3 * e]], b = indices[edges[3 * e + 1]], mask = edges[3 * e + 2];
+			packed[fill[a]++] = b << MASK_BITS | mask;
+			packed[fill[b]++] = a << MASK_BITS | mask;
+		}
+		int[] merged = new int[n + 1];
+		int size = 0;
+		for (int i = 0; i < n; i++) {
+			Arrays.sort(packed, start[i], start[i + 1]);
+			for (int edge = start[i]; edge < start[i + 1]; edge++) {
+				if (size > merged[i] && packed[size - 1] >>> MASK_BITS == packed[edge] >>> MASK_BITS)
+					packed[size - 1] |= packed[edge];
+				else packed[size++] = packed[edge];
+			}
+			merged[i + 1] = size;
+		}
+		int[] neighbours = new int[size];
+		byte[] transports = new byte[size];
+		for (int edge = 0; edge < size; edge++) {
+			neighbours[edge] = packed[edge] >>> MASK_BITS;
+			transports[edge] = (byte) (packed[edge] & ((1 << MASK_BITS) - 1));
+		}
+		return new CompactGraph(nodes, merged, neighbours, transports);
+	}
+
+	private int peek() throws IOException {
+		if (position == limit) {
+			limit = Math.max(reader.read(buffer, 0, buffer.length), 0);
+			position = 0;
+			if (limit == 0) return -1;
+		}
+		return buffer[position];
+	}
+
+	private void skipSpaces() throws IOException {
+		for (int c = peek(); c == ' ' || c == '\t' || c == '\r'; c = peek()) position++;
+	}
+
+	// a line with nothing on it is consumed, running out of lines is an error
+	private boolean blankLine() throws IOException {
+		skipSpaces();
+		if (peek() == -1) throw error("Missing lines");
+		if (peek() != '\n') return false;
+		endLine();
+		return true;
+	}
+
+	private void endLine() throws IOException {
+		skipSpaces();
+		int c = peek();
+		if (c == -1) return;
+		if (c != '\n') throw error("Unexpected '" + (char) c + "'");
+		position++;
+		line++;
+	}
+
+	private int readInt() throws IOException {
+		skipSpaces();
+		boolean negative = peek() == '-';
+		if (negative) position++;
+		long value = 0;
+		int digits = 0;
+		for (int c = peek(); c >= '0' && c <= '9'; c = peek(), digits++) {
+			value = value * 10 + (c - '0');
+			if (value > Integer.MAX_VALUE) throw error("Number out of range");
+			position++;
+		}
+		if (digits == 0) throw error("Expected a number");
+		return (int) (negative ? -value : value);
+	}
+
+	// the mask of the transport named next, in any case
+	private int readTransport() throws IOException {
+		skipSpaces();
+		int length = 0;
+		for (int c = peek(); Character.isLetter(c); c = peek()) {
+			if (length == word.length) throw error("Unknown transport");
+			word[length++] = Character.toUpperCase((char) c);
+			position++;
+		}
+		for (Transport transport : TRANSPORTS)
+			if (matches(transport.name(), length)) return CompactGraph.mask(transport);
+		throw error("Unknown transport");
+	}
+
+	private boolean matches(String name, int length) {
+		if (name.length() != length) return false;
+		for (int i = 0; i < length; i++) if (name.charAt(i) != word[i]) return false;
+		return true;
+	}
+
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException(message + " on line " + line);
+	}
+}
@@ -80,6 +80,14 @@ public class ImmutableBoard implements Board, Serializable {
 		return Optional.ofNullable(tickets.get(piece))
 				.map(tickets -> ticket -> tickets.getOrDefault(ticket, 0));
 	}
+	@Override public int locationOf(@Nonnull Piece piece) {
+		Integer location = detectiveLocations.get(piece);
+		return location == null ? -1 : location;
+	}
+	@Override public int ticketCount(@Nonnull Piece piece, @Nonnull Ticket ticket) {
+		var counts = tickets.get(piece);
+		return counts == null ? 0 : counts.getOrDefault(ticket, 0);
+	}
 	@Nonnull @Override public ImmutableList<LogEntry> getMrXTravelLog() { return mrXTravelLog; }
 	@Nonnull @Override public ImmutableSet<Piece> getWinner() { return winner; }
 	@Nonnull @Override public ImmutableSet<Move> getAvailableMoves() { return availableMoves; }
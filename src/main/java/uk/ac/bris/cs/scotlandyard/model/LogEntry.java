@@ -12,12 +12,26 @@ import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
  * A POJO representing log entries of the MrX's travel log.
  * <br>
  * Use the static factory methods {@link #hidden(Ticket)} and {@link #reveal(Ticket, int)} to
- * create new instances.
+ * create new instances. Hidden entries and reveals at locations below
+ * {@link #INTERNED_LOCATIONS} are interned, so the factories hand out shared instances instead of
+ * allocating; compare entries with {@link #equals(Object)} all the same.
  */
 public final class LogEntry implements Serializable {
 	private static final long serialVersionUID = -6468835796153329259L;
 	// because Java's stupid Optional isn't intend to be used as a field...
 	private static final int HIDDEN = -1;
+	/**
+	 * Reveals at locations from 0 up to, not including, this are interned
+	 */
+	public static final int INTERNED_LOCATIONS = 256;
+	private static final Ticket[] TICKETS = Ticket.values();
+	// INTERNED[ticket * (INTERNED_LOCATIONS + 1) + location + 1], the hidden entry first
+	private static final LogEntry[] INTERNED = new LogEntry[TICKETS.length * (INTERNED_LOCATIONS + 1)];
+	static {
+		for (Ticket ticket : TICKETS)
+			for (int location = HIDDEN; location < INTERNED_LOCATIONS; location++)
+				INTERNED[slot(ticket, location)] = new LogEntry(ticket, location);
+	}
 	private final Ticket ticket;
 	private final int location;
 	/**
@@ -25,7 +39,7 @@ public final class LogEntry implements Serializable {
 	 * @return a log entry of a hidden round for Mrx
 	 */
 	public static LogEntry hidden(
-			@Nonnull Ticket ticket) { return new LogEntry(ticket, HIDDEN); }
+			@Nonnull Ticket ticket) { return INTERNED[slot(ticket, HIDDEN)]; }
 	/**
 	 * @param ticket the ticket used in this entry
 	 * @param location the location MrX is at during this reveal round
@@ -33,8 +47,12 @@ public final class LogEntry implements Serializable {
 	 */
 	public static LogEntry reveal(@Nonnull Ticket ticket, int location) {
 		if (location == HIDDEN) throw new IllegalArgumentException();
+		if (location >= 0 && location < INTERNED_LOCATIONS) return INTERNED[slot(ticket, location)];
 		return new LogEntry(ticket, location);
 	}
+	private static int slot(Ticket ticket, int location) {
+		return ticket.ordinal() * (INTERNED_LOCATIONS + 1) + location + 1;
+	}
 	private LogEntry(@Nonnull Ticket ticket, int location) {
 		this.ticket = Objects.requireNonNull(ticket);
 		this.location = location;
@@ -49,6 +67,22 @@ public final class LogEntry implements Serializable {
 	public Optional<Integer> location() {
 		return location == HIDDEN ? Optional.empty() : Optional.of(location);
 	}
+	/**
+	 * @return whether MrX's location is revealed in this log entry
+	 */
+	public boolean isRevealed() { return location != HIDDEN; }
+	/**
+	 * Same as {@link #location()} without boxing.
+	 *
+	 * @return the location in this log entry, -1 means MrX's location is hidden
+	 */
+	public int locationOrMinusOne() { return location; }
+	// deserialised entries are swapped for the interned ones
+	private Object readResolve() {
+		if (location >= HIDDEN && location < INTERNED_LOCATIONS)
+			return INTERNED[slot(ticket, location)];
+		return this;
+	}
 	@Override public boolean equals(Object o) {
 		if (this == o) return true;
 		if (o == null || getClass() != o.getClass()) return false;
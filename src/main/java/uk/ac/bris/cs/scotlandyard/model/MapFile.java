@@ -0,0 +1,195 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A game map, its graph and where each station is drawn, in a compact binary form that loads
+ * without parsing. All values are big endian ints, except for the transports:
+ * <pre>
+ * magic {@link #MAGIC}, version {@link #VERSION}
+ * number of nodes n, number of edges m (each undirected edge counts twice)
+ * n stations, ascending
+ * n + 1 edge starts, see {@link CompactGraph#start(int)}
+ * m neighbour indices
+ * m transport masks, one byte each, padded with zeros to a multiple of 4
+ * number of positions p, then p times station, x and y
+ * </pre>
+ * Files are loaded with {@link #read(Path)}, which maps them into memory. Maps in the text
+ * formats of {@code graph.txt} and {@code pos.txt} can still be imported with
+ * {@link #fromText(String, String)}; running this class with a graph, a positions and an output
+ * file converts them.
+ */
+public final class MapFile {
+
+	/**
+	 * The first int of every map file
+	 */
+	public static final int MAGIC = 0x5359_4D50;
+	/**
+	 * The version of the format written
+	 */
+	public static final int VERSION = 1;
+
+	private final CompactGraph graph;
+	private final ImmutableMap<Integer, Entry<Integer, Integer>> positions;
+
+	/**
+	 * @param graph the graph
+	 * @param positions where each station is drawn, as x and y
+	 */
+	public MapFile(@Nonnull CompactGraph graph,
+	               @Nonnull ImmutableMap<Integer, Entry<Integer, Integer>> positions) {
+		this.graph = graph;
+		this.positions = positions;
+	}
+
+	/**
+	 * @return the graph
+	 */
+	@Nonnull public CompactGraph graph() { return graph; }
+
+	/**
+	 * @return where each station is drawn, as x and y before any scaling
+	 */
+	@Nonnull public ImmutableMap<Integer, Entry<Integer, Integer>> positions() { return positions; }
+
+	/**
+	 * @param graph the graph, as in {@code graph.txt}
+	 * @param positions the positions, as in {@code pos.txt}
+	 * @return the map
+	 */
+	@Nonnull public static MapFile fromText(@Nonnull String graph, @Nonnull String positions) {
+		try {
+			return new MapFile(ScotlandYard.readCompactGraph(new StringReader(graph)),
+					readPositions(positions));
+		} catch (IOException e) {
+			// reading a string never fails
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * @param content lines of station, x and y; other lines are skipped
+	 * @return the positions
+	 */
+	@Nonnull static ImmutableMap<Integer, Entry<Integer, Integer>> readPositions(@Nonnull String content) {
+		var builder = ImmutableMap.<Integer, Entry<Integer, Integer>>builder();
+		content.lines().forEach(line -> {
+			String[] values = line.trim().split("\\s+");
+			if (values.length != 3) return;
+			builder.put(Integer.parseInt(values[0]), new SimpleImmutableEntry<>(
+					Integer.parseInt(values[1]), Integer.parseInt(values[2])));
+		});
+		return builder.build();
+	}
+
+	/**
+	 * @param path the map file
+	 * @return the map, read from the file mapped into memory
+	 * @throws IOException if the file cannot be read
+	 */
+	@Nonnull public static MapFile read(@Nonnull Path path) throws IOException {
+		try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * @param buffer the bytes of a map file, from the buffer's position
+	 * @return the map
+	 */
+	@Nonnull public static MapFile read(@Nonnull ByteBuffer buffer) {
+		IntBuffer ints = buffer.slice().asIntBuffer();
+		if (ints.remaining() < 4 || ints.get() != MAGIC)
+			throw new IllegalArgumentException("Not a map file");
+		int version = ints.get();
+		if (version != VERSION) throw new IllegalArgumentException("Unknown map file version " + version);
+		int n = ints.get(), m = ints.get();
+		if (n < 0 || m < 0) throw new IllegalArgumentException("Bad map file sizes");
+		int[] nodes = ints(ints, n), start = ints(ints, n + 1), neighbours = ints(ints, m);
+		byte[] transports = new byte[m];
+		int padded = (m + 3) / 4;
+		if (ints.remaining() < padded) throw new IllegalArgumentException("Map file is cut short");
+		buffer.slice().position(ints.position() * Integer.BYTES).get(transports);
+		ints.position(ints.position() + padded);
+		var graph = new CompactGraph(nodes, start, neighbours, transports);
+
+		if (!ints.hasRemaining()) throw new IllegalArgumentException("Map file is cut short");
+		int[] positions = ints(ints, 3 * ints.get());
+		var builder = ImmutableMap.<Integer, Entry<Integer, Integer>>builderWithExpectedSize(positions.length / 3);
+		for (int i = 0; i < positions.length; i += 3)
+			builder.put(positions[i], new SimpleImmutableEntry<>(positions[i + 1], positions[i + 2]));
+		return new MapFile(graph, builder.build());
+	}
+
+	private static int[] ints(IntBuffer ints, int count) {
+		if (count < 0 || ints.remaining() < count)
+			throw new IllegalArgumentException("Map file is cut short");
+		int[] values = new int[count];
+		ints.get(values);
+		return values;
+	}
+
+	/**
+	 * @return the bytes of the map file
+	 */
+	@Nonnull public ByteBuffer toBuffer() {
+		int n = graph.nodeCount(), m = graph.start(n);
+		int size = 4 + n + (n + 1) + m + (m + 3) / 4 + 1 + 3 * positions.size();
+		ByteBuffer buffer = ByteBuffer.allocate(size * Integer.BYTES);
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(m);
+		for (int i = 0; i < n; i++) buffer.putInt(graph.node(i));
+		for (int i = 0; i <= n; i++) buffer.putInt(graph.start(i));
+		for (int edge = 0; edge < m; edge++) buffer.putInt(graph.neighbour(edge));
+		for (int edge = 0; edge < m; edge++) buffer.put((byte) graph.transports(edge));
+		while (buffer.position() % Integer.BYTES != 0) buffer.put((byte) 0);
+		buffer.putInt(positions.size());
+		for (Map.Entry<Integer, Entry<Integer, Integer>> position : positions.entrySet())
+			buffer.putInt(position.getKey())
+					.putInt(position.getValue().getKey())
+					.putInt(position.getValue().getValue());
+		return buffer.flip();
+	}
+
+	/**
+	 * @param path the file to write the map to
+	 * @throws IOException if the file cannot be written
+	 */
+	public void write(@Nonnull Path path) throws IOException {
+		try (var channel = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = toBuffer();
+			while (buffer.hasRemaining()) channel.write(buffer);
+		}
+	}
+
+	/**
+	 * Converts a map from the text formats.
+	 *
+	 * @param args the graph file, the positions file and the map file to write
+	 * @throws IOException if a file cannot be read or written
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 3) {
+			System.err.println("Usage: MapFile <graph.txt> <pos.txt> <map.bin>");
+			System.exit(1);
+		}
+		fromText(Files.readString(Path.of(args[0])), Files.readString(Path.of(args[1])))
+				.write(Path.of(args[2]));
+	}
+}
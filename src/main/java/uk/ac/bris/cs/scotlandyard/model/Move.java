@@ -88,6 +88,8 @@ public interface Move extends Serializable {
 		 * The destination
 		 */
 		public final int destination;
+		// enum hash codes differ between JVMs, so the cached hash is not serialised
+		private transient int hash;
 		public SingleMove(@Nonnull Piece piece, int source,
 		                  @Nonnull Ticket ticket, int destination) {
 			this.piece = Objects.requireNonNull(piece);
@@ -106,7 +108,13 @@ public interface Move extends Serializable {
 			return source == that.source && destination == that.destination &&
 					piece == that.piece && ticket == that.ticket;
 		}
-		@Override public int hashCode() { return Objects.hash(piece, ticket, destination); }
+		// same value as Objects.hash(piece, ticket, destination), computed once
+		@Override public int hashCode() {
+			int h = hash;
+			if (h == 0)
+				hash = h = 31 * (31 * (31 + piece.hashCode()) + ticket.hashCode()) + destination;
+			return h;
+		}
 		@Override public String toString() {
 			return ticket.name() + "(" + piece + "@" + source + ", " + destination + ")";
 		}
@@ -135,6 +143,7 @@ public interface Move extends Serializable {
 		 * The second destination
 		 */
 		public final int destination2;
+		private transient int hash;
 		public DoubleMove(@Nonnull Piece piece, int source,
 		                  @Nonnull Ticket ticket1, int destination1,
 		                  @Nonnull Ticket ticket2, int destination2) {
@@ -158,8 +167,17 @@ public interface Move extends Serializable {
 					ticket1 == that.ticket1 && destination1 == that.destination1 &&
 					ticket2 == that.ticket2 && destination2 == that.destination2;
 		}
+		// same value as Objects.hash(piece, ticket1, destination1, ticket2, destination2)
 		@Override public int hashCode() {
-			return Objects.hash(piece, ticket1, destination1, ticket2, destination2);
+			int result = hash;
+			if (result == 0) {
+				result = 31 + piece.hashCode();
+				result = 31 * result + ticket1.hashCode();
+				result = 31 * result + destination1;
+				result = 31 * result + ticket2.hashCode();
+				hash = result = 31 * result + destination2;
+			}
+			return result;
 		}
 		@Override public String toString() {
 			return "x2(" + piece + "@" + source + ", " + ticket1 + ", " + destination1 + ", " + ticket2 + ", " + destination2 + ")";
@@ -0,0 +1,173 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Move.DoubleMove;
+import uk.ac.bris.cs.scotlandyard.model.Move.SingleMove;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * Packs a {@link Move} into a single {@code long} so that search code can store and compare
+ * moves without allocating. The layout, from the least significant bit, is:
+ * <pre>
+ * bits  0-2   piece, see {@link ScotlandYard#pieceIndex(Piece)}
+ * bit   3     set for a double move
+ * bits  4-6   (first) ticket
+ * bits  7-9   second ticket, double moves only
+ * bits 10-27  source
+ * bits 28-45  (first) destination
+ * bits 46-63  second destination, double moves only
+ * </pre>
+ * Nodes must be in the range {@code [0, }{@link #MAX_NODE}{@code ]}. Equal moves always have
+ * equal encodings, so an encoded move can be used directly as a key.
+ */
+public final class MoveCodec {
+
+	private MoveCodec() {}
+
+	/**
+	 * The largest node an encoded move can refer to
+	 */
+	public static final int MAX_NODE = (1 << 18) - 1;
+
+	private static final Ticket[] TICKETS = Ticket.values();
+	private static final Piece[] PIECES = ScotlandYard.ALL_PIECES.toArray(new Piece[0]);
+
+	private static final int DOUBLE_BIT = 3;
+	private static final int TICKET1_SHIFT = 4;
+	private static final int TICKET2_SHIFT = 7;
+	private static final int SOURCE_SHIFT = 10;
+	private static final int DESTINATION1_SHIFT = 28;
+	private static final int DESTINATION2_SHIFT = 46;
+
+	/**
+	 * @param piece the player that made this move
+	 * @param source the source
+	 * @param ticket the ticket
+	 * @param destination the destination
+	 * @return the encoded single move
+	 */
+	public static long single(@Nonnull Piece piece, int source,
+	                          @Nonnull Ticket ticket, int destination) {
+		return ScotlandYard.pieceIndex(piece)
+				| (long) ticket.ordinal() << TICKET1_SHIFT
+				| (long) checkNode(source) << SOURCE_SHIFT
+				| (long) checkNode(destination) << DESTINATION1_SHIFT;
+	}
+
+	/**
+	 * @param piece the player that made this move
+	 * @param source the source
+	 * @param ticket1 the first ticket
+	 * @param destination1 the first destination
+	 * @param ticket2 the second ticket
+	 * @param destination2 the second destination
+	 * @return the encoded double move
+	 */
+	public static long doubleMove(@Nonnull Piece piece, int source,
+	                              @Nonnull Ticket ticket1, int destination1,
+	                              @Nonnull Ticket ticket2, int destination2) {
+		return single(piece, source, ticket1, destination1) | secondHop(ticket2, destination2);
+	}
+
+	/**
+	 * The second hop of a double move on its own; OR it with an encoded single move (the first
+	 * hop) to get the encoded double move.
+	 *
+	 * @param ticket2 the second ticket
+	 * @param destination2 the second destination
+	 * @return the encoded second hop
+	 */
+	public static long secondHop(@Nonnull Ticket ticket2, int destination2) {
+		return 1L << DOUBLE_BIT
+				| (long) ticket2.ordinal() << TICKET2_SHIFT
+				| (long) checkNode(destination2) << DESTINATION2_SHIFT;
+	}
+
+	/**
+	 * @param move the move
+	 * @return the encoded move
+	 */
+	public static long encode(@Nonnull Move move) {
+		// not a visitor, that would box the result
+		if (move instanceof SingleMove) {
+			SingleMove m = (SingleMove) move;
+			return single(m.commencedBy(), m.source(), m.ticket, m.destination);
+		}
+		DoubleMove m = (DoubleMove) move;
+		return doubleMove(m.commencedBy(), m.source(),
+				m.ticket1, m.destination1, m.ticket2, m.destination2);
+	}
+
+	/**
+	 * @param move the encoded move
+	 * @return the move equal to the one that was encoded
+	 */
+	@Nonnull public static Move decode(long move) {
+		if (isDouble(move))
+			return new DoubleMove(piece(move), source(move),
+					ticket1(move), destination1(move), ticket2(move), destination2(move));
+		return new SingleMove(piece(move), source(move), ticket1(move), destination1(move));
+	}
+
+	/**
+	 * @param move the encoded move
+	 * @return the index of the piece that made this move, see
+	 * {@link ScotlandYard#pieceIndex(Piece)}
+	 */
+	public static int pieceIndex(long move) { return (int) (move & 0b111); }
+	/**
+	 * @param move the encoded move
+	 * @return the piece that made this move
+	 */
+	@Nonnull public static Piece piece(long move) { return PIECES[pieceIndex(move)]; }
+	/**
+	 * @param move the encoded move
+	 * @return whether the move is a double move
+	 */
+	public static boolean isDouble(long move) { return (move & 1L << DOUBLE_BIT) != 0; }
+	/**
+	 * @param move the encoded move
+	 * @return the source of the move
+	 */
+	public static int source(long move) { return node(move, SOURCE_SHIFT); }
+	/**
+	 * @param move the encoded move
+	 * @return the ticket of a single move, or the first ticket of a double move
+	 */
+	@Nonnull public static Ticket ticket1(long move) { return ticket(move, TICKET1_SHIFT); }
+	/**
+	 * @param move the encoded move
+	 * @return the destination of a single move, or the first destination of a double move
+	 */
+	public static int destination1(long move) { return node(move, DESTINATION1_SHIFT); }
+	/**
+	 * @param move the encoded double move
+	 * @return the second ticket of the move
+	 */
+	@Nonnull public static Ticket ticket2(long move) { return ticket(move, TICKET2_SHIFT); }
+	/**
+	 * @param move the encoded double move
+	 * @return the second destination of the move
+	 */
+	public static int destination2(long move) { return node(move, DESTINATION2_SHIFT); }
+	/**
+	 * @param move the encoded move
+	 * @return where the player ends up after the move
+	 */
+	public static int destination(long move) {
+		return isDouble(move) ? destination2(move) : destination1(move);
+	}
+
+	private static Ticket ticket(long move, int shift) {
+		return TICKETS[(int) (move >>> shift & 0b111)];
+	}
+
+	private static int node(long move, int shift) { return (int) (move >>> shift & MAX_NODE); }
+
+	private static int checkNode(int node) {
+		if (node < 0 || node > MAX_NODE)
+			throw new IllegalArgumentException("Node " + node + " cannot be encoded");
+		return node;
+	}
+}
@@ -0,0 +1,285 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Move.DoubleMove;
+import uk.ac.bris.cs.scotlandyard.model.Move.SingleMove;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * Generates the moves a piece can make on a graph. Nodes occupied by detectives are given as a
+ * bitset where node {@code n} is bit {@code n % 64} of word {@code n / 64}, see
+ * {@link #occupancy(Iterable)}. Moves are generated in the same way as the rules describe: a
+ * {@link Ticket#SECRET} reaches any neighbour, {@link Ticket#DOUBLE} never appears in a
+ * {@link SingleMove}. Moves come out grouped by ticket, with destinations ascending.
+ * <br>
+ * Small maps get a generator that keeps the adjacency of every node as bitsets, larger ones a
+ * generator that walks the {@link CompactGraph} directly, see {@link #of(CompactGraph)}.
+ * <br>
+ * Instances are immutable and are normally obtained through {@link GameSetup#moveGenerator()}.
+ */
+public abstract class MoveGenerator {
+
+	/**
+	 * The largest node a graph may have for its adjacency to be kept as bitsets; the bitsets of
+	 * all nodes grow with the square of the largest node
+	 */
+	public static final int BITBOARD_MAX_NODE = 2047;
+
+	static final Ticket[] TICKETS = Ticket.values();
+	private static final int[] MASKS = new int[TICKETS.length];
+	static {
+		for (Ticket ticket : TICKETS) MASKS[ticket.ordinal()] = CompactGraph.mask(ticket);
+	}
+
+	final CompactGraph graph;
+	private final MoveTable moveTable;
+	private final int words;
+
+	MoveGenerator(@Nonnull CompactGraph graph, @Nonnull MoveTable moveTable) {
+		this.graph = graph;
+		this.moveTable = moveTable;
+		this.words = (graph.maxNode() + 64) / 64;
+	}
+
+	/**
+	 * @param graph the game graph
+	 * @return a generator using adjacency bitsets if the largest node is at most
+	 * {@link #BITBOARD_MAX_NODE}, otherwise one walking the edges of the graph
+	 */
+	@Nonnull public static MoveGenerator of(@Nonnull CompactGraph graph) {
+		var table = new MoveTable(graph);
+		return graph.maxNode() <= BITBOARD_MAX_NODE ?
+				new BitboardMoveGenerator(graph, table) :
+				new CompactMoveGenerator(graph, table);
+	}
+
+	/**
+	 * @return the table of interned moves the list returning methods hand out
+	 */
+	@Nonnull public MoveTable moveTable() { return moveTable; }
+
+	/**
+	 * @return the number of longs needed by a bitset of nodes in the graph
+	 */
+	public int words() { return words; }
+
+	/**
+	 * @param node the node
+	 * @return whether the node is part of the graph
+	 */
+	public boolean contains(int node) { return graph.contains(node); }
+
+	/**
+	 * @param ticket the ticket
+	 * @param source the source node
+	 * @param destination the destination node
+	 * @return whether the ticket takes a player from the source to the destination in one move;
+	 * false if either node is not part of the graph
+	 */
+	public abstract boolean reaches(@Nonnull Ticket ticket, int source, int destination);
+
+	/**
+	 * @param node the node
+	 * @param occupied a bitset of nodes, see {@link #occupancy(Iterable)}
+	 * @return whether the node is in the bitset
+	 */
+	public static boolean isOccupied(int node, @Nonnull long[] occupied) {
+		return (occupied[node >>> 6] & 1L << node) != 0;
+	}
+
+	/**
+	 * @param detectives the detectives
+	 * @return a bitset of all nodes occupied by the given detectives
+	 */
+	@Nonnull public long[] occupancy(@Nonnull Iterable<Player> detectives) {
+		long[] occupied = new long[words];
+		for (Player detective : detectives) {
+			int location = detective.location();
+			if (contains(location)) occupied[location >>> 6] |= 1L << location;
+		}
+		return occupied;
+	}
+
+	/**
+	 * Same as checking that {@link #singleMoves(Player, int, long[])} is not empty, without
+	 * generating the moves.
+	 *
+	 * @param player the player moving
+	 * @param source where the player is moving from
+	 * @param occupied the nodes a player cannot move to, see {@link #occupancy(Iterable)}
+	 * @return whether the player has any single move from the given source
+	 */
+	public boolean hasSingleMove(@Nonnull Player player, int source, @Nonnull long[] occupied) {
+		return hasSingleMove(source, ticketCounts(player), occupied);
+	}
+
+	/**
+	 * Same as {@link #hasSingleMove(Player, int, long[])} but with the tickets of the player
+	 * given as counts indexed by {@link Ticket#ordinal()}.
+	 *
+	 * @param source where the piece is moving from
+	 * @param tickets the ticket counts of the piece
+	 * @param occupied the nodes a player cannot move to, see {@link #occupancy(Iterable)}
+	 * @return whether the piece has any single move from the given source
+	 */
+	public abstract boolean hasSingleMove(int source, @Nonnull int[] tickets,
+	                                      @Nonnull long[] occupied);
+
+	/**
+	 * Same as checking that {@link #doubleMoves(Player, int, long[])} is not empty, stopping at
+	 * the first double move found.
+	 *
+	 * @param source where the piece is moving from
+	 * @param tickets the ticket counts of the piece
+	 * @param occupied the nodes a player cannot move to, see {@link #occupancy(Iterable)}
+	 * @return whether the piece has any double move from the given source
+	 */
+	public abstract boolean hasDoubleMove(int source, @Nonnull int[] tickets,
+	                                      @Nonnull long[] occupied);
+
+	/**
+	 * @param player the player moving
+	 * @param source where the player is moving from
+	 * @param occupied the nodes a player cannot move to, see {@link #occupancy(Iterable)}
+	 * @return all single moves the player can make from the given source, interned by
+	 * {@link #moveTable()}
+	 */
+	@Nonnull public ImmutableList<SingleMove> singleMoves(@Nonnull Player player, int source,
+	                                                     @Nonnull long[] occupied) {
+		var encoded = new MoveList();
+		singleMoves(player, source, occupied, encoded);
+		var moves = ImmutableList.<SingleMove>builderWithExpectedSize(encoded.size());
+		for (int i = 0; i < encoded.size(); i++) moves.add((SingleMove) moveTable.decode(encoded.get(i)));
+		return moves.build();
+	}
+
+	/**
+	 * Appends all single moves the player can make from the given source, encoded with
+	 * {@link MoveCodec}, to a move list.
+	 *
+	 * @param player the player moving
+	 * @param source where the player is moving from
+	 * @param occupied the nodes a player cannot move to, see {@link #occupancy(Iterable)}
+	 * @param out the list to append to
+	 */
+	public void singleMoves(@Nonnull Player player, int source,
+	                        @Nonnull long[] occupied, @Nonnull MoveList out) {
+		singleMoves(player.piece(), source, ticketCounts(player), occupied, out);
+	}
+
+	/**
+	 * Same as {@link #singleMoves(Player, int, long[], MoveList)} but with the tickets of the
+	 * player given as counts indexed by {@link Ticket#ordinal()}.
+	 *
+	 * @param piece the piece moving
+	 * @param source where the piece is moving from
+	 * @param tickets the ticket counts of the piece
+	 * @param occupied the nodes a player cannot move to, see {@link #occupancy(Iterable)}
+	 * @param out the list to append to
+	 */
+	public abstract void singleMoves(@Nonnull Piece piece, int source, @Nonnull int[] tickets,
+	                                 @Nonnull long[] occupied, @Nonnull MoveList out);
+
+	/**
+	 * Double moves are only generated if the player holds a {@link Ticket#DOUBLE}; whether there
+	 * are enough rounds left for a double move is up to the caller.
+	 *
+	 * @param player the player moving
+	 * @param source where the player is moving from
+	 * @param occupied the nodes a player cannot move to, see {@link #occupancy(Iterable)}
+	 * @return all double moves the player can make from the given source
+	 */
+	@Nonnull public ImmutableList<DoubleMove> doubleMoves(@Nonnull Player player, int source,
+	                                                     @Nonnull long[] occupied) {
+		var encoded = new MoveList(512);
+		doubleMoves(player, source, occupied, encoded);
+		var moves = ImmutableList.<DoubleMove>builderWithExpectedSize(encoded.size());
+		for (int i = 0; i < encoded.size(); i++) moves.add((DoubleMove) moveTable.decode(encoded.get(i)));
+		return moves.build();
+	}
+
+	/**
+	 * Appends all double moves the player can make from the given source, encoded with
+	 * {@link MoveCodec}, to a move list. See {@link #doubleMoves(Player, int, long[])}.
+	 *
+	 * @param player the player moving
+	 * @param source where the player is moving from
+	 * @param occupied the nodes a player cannot move to, see {@link #occupancy(Iterable)}
+	 * @param out the list to append to
+	 */
+	public void doubleMoves(@Nonnull Player player, int source,
+	                        @Nonnull long[] occupied, @Nonnull MoveList out) {
+		doubleMoves(player.piece(), source, ticketCounts(player), occupied, out);
+	}
+
+	/**
+	 * Same as {@link #doubleMoves(Player, int, long[], MoveList)} but with the tickets of the
+	 * player given as counts indexed by {@link Ticket#ordinal()}. Moves come out grouped by
+	 * first destination, ascending.
+	 *
+	 * @param piece the piece moving
+	 * @param source where the piece is moving from
+	 * @param tickets the ticket counts of the piece
+	 * @param occupied the nodes a player cannot move to, see {@link #occupancy(Iterable)}
+	 * @param out the list to append to
+	 */
+	public abstract void doubleMoves(@Nonnull Piece piece, int source, @Nonnull int[] tickets,
+	                                 @Nonnull long[] occupied, @Nonnull MoveList out);
+
+	/**
+	 * Appends the first hops of all double moves the piece can make, encoded as single moves,
+	 * without expanding the second hops. Each of them can be expanded later with
+	 * {@link #doubleMovesAfter(long, int[], long[], MoveList)}; together they give the same moves
+	 * as {@link #doubleMoves(Piece, int, int[], long[], MoveList)}.
+	 *
+	 * @param piece the piece moving
+	 * @param source where the piece is moving from
+	 * @param tickets the ticket counts of the piece
+	 * @param occupied the nodes a player cannot move to, see {@link #occupancy(Iterable)}
+	 * @param out the list to append to
+	 */
+	public abstract void doubleMovePrefixes(@Nonnull Piece piece, int source, @Nonnull int[] tickets,
+	                                        @Nonnull long[] occupied, @Nonnull MoveList out);
+
+	/**
+	 * Appends the double moves that start with the given first hop, see
+	 * {@link #doubleMovePrefixes(Piece, int, int[], long[], MoveList)}.
+	 *
+	 * @param prefix the first hop, an encoded single move
+	 * @param tickets the ticket counts of the piece before the first hop
+	 * @param occupied the nodes a player cannot move to, see {@link #occupancy(Iterable)}
+	 * @param out the list to append to
+	 */
+	public abstract void doubleMovesAfter(long prefix, @Nonnull int[] tickets,
+	                                      @Nonnull long[] occupied, @Nonnull MoveList out);
+
+	/**
+	 * @param player the player
+	 * @return the ticket counts of the player indexed by {@link Ticket#ordinal()}
+	 */
+	@Nonnull public static int[] ticketCounts(@Nonnull Player player) {
+		int[] counts = new int[TICKETS.length];
+		for (Ticket ticket : TICKETS) counts[ticket.ordinal()] = player.count(ticket);
+		return counts;
+	}
+
+	// whether the ticket can be used along an edge with the given transports
+	static boolean takes(Ticket ticket, int transports) {
+		return ticket == Ticket.SECRET || (transports & MASKS[ticket.ordinal()]) != 0;
+	}
+
+	// the first destination of a prefix given to doubleMovesAfter
+	static int checkPrefix(long prefix) {
+		if (MoveCodec.isDouble(prefix))
+			throw new IllegalArgumentException("Not a single move: " + MoveCodec.decode(prefix));
+		return MoveCodec.destination1(prefix);
+	}
+
+	void checkNode(int node) {
+		if (!contains(node))
+			throw new IllegalArgumentException("Node " + node + " is not an element of this graph");
+	}
+}
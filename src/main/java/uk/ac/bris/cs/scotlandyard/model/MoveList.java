@@ -0,0 +1,96 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A growable list of moves encoded with {@link MoveCodec}. The backing array is kept between
+ * {@link #clear()}s, so a list that is refilled for every node of a search stops allocating
+ * once it has grown to the largest move set seen.
+ * <br>
+ * This class is not thread safe.
+ */
+public final class MoveList {
+
+	private long[] moves;
+	private int size;
+
+	public MoveList() { this(64); }
+
+	/**
+	 * @param capacity the initial capacity
+	 */
+	public MoveList(int capacity) { this.moves = new long[Math.max(1, capacity)]; }
+
+	/**
+	 * @param move the encoded move to append
+	 */
+	public void add(long move) {
+		if (size == moves.length) moves = Arrays.copyOf(moves, size * 2);
+		moves[size++] = move;
+	}
+
+	/**
+	 * @param move the move to encode and append
+	 */
+	public void add(@Nonnull Move move) { add(MoveCodec.encode(move)); }
+
+	/**
+	 * @param index the index
+	 * @return the encoded move at the given index
+	 */
+	public long get(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index " + index + " out of bounds for " + size);
+		return moves[index];
+	}
+
+	/**
+	 * @param index the index
+	 * @return the decoded move at the given index
+	 */
+	@Nonnull public Move move(int index) { return MoveCodec.decode(get(index)); }
+
+	/**
+	 * @return the number of moves in the list
+	 */
+	public int size() { return size; }
+
+	/**
+	 * @return whether the list is empty
+	 */
+	public boolean isEmpty() { return size == 0; }
+
+	/**
+	 * Empties the list, keeping the backing array
+	 */
+	public void clear() { size = 0; }
+
+	/**
+	 * @param move the encoded move
+	 * @return whether the list contains the move; this is a linear scan
+	 */
+	public boolean contains(long move) {
+		for (int i = 0; i < size; i++) if (moves[i] == move) return true;
+		return false;
+	}
+
+	/**
+	 * @return a copy of the encoded moves
+	 */
+	@Nonnull public long[] toArray() { return Arrays.copyOf(moves, size); }
+
+	/**
+	 * @return the decoded moves, in list order
+	 */
+	@Nonnull public ImmutableList<Move> toMoves() {
+		var builder = ImmutableList.<Move>builderWithExpectedSize(size);
+		for (int i = 0; i < size; i++) builder.add(MoveCodec.decode(moves[i]));
+		return builder.build();
+	}
+
+	@Override public String toString() { return toMoves().toString(); }
+}
@@ -0,0 +1,166 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Move.DoubleMove;
+import uk.ac.bris.cs.scotlandyard.model.Move.SingleMove;
+
+/**
+ * An immutable set of moves encoded with {@link MoveCodec}, kept in an open addressing hash
+ * table so membership is a constant time lookup on the encoding. The moves are only turned into
+ * {@link Move} objects when asked for with {@link #toMoves(MoveTable)}.
+ * <br>
+ * No valid encoding is {@code -1} (piece index 7 does not exist), so it marks empty slots.
+ */
+public final class MoveSet {
+
+	private static final long EMPTY = -1L;
+
+	private final long[] moves;
+	private final long[] table;
+
+	/**
+	 * @param moves the encoded moves; duplicates are dropped, the first occurrence sets the
+	 * iteration order
+	 */
+	public MoveSet(@Nonnull MoveList moves) {
+		this.table = new long[Integer.highestOneBit(Math.max(4, moves.size()) * 2) * 2];
+		Arrays.fill(table, EMPTY);
+		long[] unique = new long[moves.size()];
+		int size = 0;
+		for (int i = 0; i < moves.size(); i++) {
+			long move = moves.get(i);
+			if (insert(move)) unique[size++] = move;
+		}
+		this.moves = size == unique.length ? unique : Arrays.copyOf(unique, size);
+	}
+
+	private boolean insert(long move) {
+		int mask = table.length - 1;
+		for (int slot = mix(move) & mask; ; slot = (slot + 1) & mask) {
+			if (table[slot] == move) return false;
+			if (table[slot] == EMPTY) {
+				table[slot] = move;
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * @param move the encoded move
+	 * @return whether the set contains the move
+	 */
+	public boolean contains(long move) {
+		if (move == EMPTY) return false;
+		int mask = table.length - 1;
+		for (int slot = mix(move) & mask; ; slot = (slot + 1) & mask) {
+			if (table[slot] == move) return true;
+			if (table[slot] == EMPTY) return false;
+		}
+	}
+
+	/**
+	 * @param move the move, may be null
+	 * @return whether the set contains the move
+	 */
+	public boolean contains(Move move) {
+		if (!(move instanceof SingleMove || move instanceof DoubleMove)) return false;
+		long encoded;
+		try {
+			encoded = MoveCodec.encode(move);
+		} catch (IllegalArgumentException e) {
+			// nodes out of the encodable range are never part of a set
+			return false;
+		}
+		return contains(encoded);
+	}
+
+	/**
+	 * @return the number of moves in the set
+	 */
+	public int size() { return moves.length; }
+
+	/**
+	 * @return whether the set is empty
+	 */
+	public boolean isEmpty() { return moves.length == 0; }
+
+	/**
+	 * @param index the index, in the iteration order
+	 * @return the encoded move at the index
+	 */
+	public long get(int index) { return moves[index]; }
+
+	/**
+	 * @param table the table to intern single moves with
+	 * @return the decoded moves, in iteration order
+	 */
+	@Nonnull public ImmutableSet<Move> toMoves(@Nonnull MoveTable table) {
+		var builder = ImmutableSet.<Move>builderWithExpectedSize(moves.length);
+		for (long move : moves) builder.add(table.decode(move));
+		return builder.build();
+	}
+
+	/**
+	 * @param table the table to intern single moves with
+	 * @return a spliterator over the moves, decoding each one as it is reached
+	 */
+	@Nonnull public Spliterator<Move> spliterator(@Nonnull MoveTable table) {
+		return new MoveSpliterator(moves, 0, moves.length, table);
+	}
+
+	@Override public String toString() {
+		var builder = ImmutableSet.<Move>builderWithExpectedSize(moves.length);
+		for (long move : moves) builder.add(MoveCodec.decode(move));
+		return builder.build().toString();
+	}
+
+	private static int mix(long move) {
+		long z = move * 0x9E37_79B9_7F4A_7C15L;
+		return (int) (z ^ (z >>> 32));
+	}
+
+	private static final class MoveSpliterator implements Spliterator<Move> {
+		private final long[] moves;
+		private final MoveTable table;
+		private int index;
+		private final int end;
+
+		private MoveSpliterator(long[] moves, int index, int end, MoveTable table) {
+			this.moves = moves;
+			this.index = index;
+			this.end = end;
+			this.table = table;
+		}
+
+		@Override public boolean tryAdvance(Consumer<? super Move> action) {
+			if (index >= end) return false;
+			action.accept(table.decode(moves[index++]));
+			return true;
+		}
+
+		@Override public void forEachRemaining(Consumer<? super Move> action) {
+			for (; index < end; index++) action.accept(table.decode(moves[index]));
+		}
+
+		@Override public Spliterator<Move> trySplit() {
+			int middle = (index + end) >>> 1;
+			if (middle <= index) return null;
+			var prefix = new MoveSpliterator(moves, index, middle, table);
+			index = middle;
+			return prefix;
+		}
+
+		@Override public long estimateSize() { return end - index; }
+
+		@Override public int characteristics() {
+			return ORDERED | DISTINCT | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Move.DoubleMove;
+import uk.ac.bris.cs.scotlandyard.model.Move.SingleMove;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * Interns every {@link SingleMove} along an edge of a graph: there is one slot for each piece,
+ * ticket and edge of the {@link CompactGraph}, filled with a shared instance on first use. Move
+ * generation then hands out the same instance each time instead of allocating, and equal
+ * interned moves are identical, so {@link SingleMove#equals(Object)} returns on the identity
+ * check.
+ * <br>
+ * Double moves are far too many to intern and are still allocated by {@link #decode(long)}. On
+ * maps with more than {@link #MAX_SLOTS} slots nothing is interned and every move is allocated.
+ * <br>
+ * Instances are thread safe and are normally obtained through {@link GameSetup#moveTable()}.
+ */
+public final class MoveTable {
+
+	/**
+	 * The most slots a table keeps, about 16MB of references; a graph needing more interns
+	 * nothing
+	 */
+	public static final int MAX_SLOTS = 1 << 22;
+
+	private static final Ticket[] TICKETS = Ticket.values();
+	private static final Piece[] PIECES = ScotlandYard.ALL_PIECES.toArray(new Piece[0]);
+
+	private final CompactGraph graph;
+	private final int edges;
+	// moves[(piece * TICKETS.length + ticket) * edges + edge], see CompactGraph#edge(int, int)
+	private final SingleMove[] moves;
+
+	/**
+	 * @param graph the game graph
+	 */
+	public MoveTable(@Nonnull CompactGraph graph) {
+		this.graph = graph;
+		this.edges = graph.start(graph.nodeCount());
+		long slots = (long) PIECES.length * TICKETS.length * edges;
+		this.moves = new SingleMove[slots <= MAX_SLOTS ? (int) slots : 0];
+	}
+
+	/**
+	 * @param piece the player that made this move
+	 * @param source the source
+	 * @param ticket the ticket
+	 * @param destination the destination
+	 * @return the interned move if the source and destination are adjacent, otherwise a new move
+	 */
+	@Nonnull public SingleMove single(@Nonnull Piece piece, int source,
+	                                  @Nonnull Ticket ticket, int destination) {
+		int edge = moves.length == 0 ? -1 : edge(source, destination);
+		if (edge < 0) return new SingleMove(piece, source, ticket, destination);
+		int slot = (ScotlandYard.pieceIndex(piece) * TICKETS.length + ticket.ordinal()) * edges + edge;
+		// interned on first use without locking, racing threads make equal moves
+		var move = moves[slot];
+		if (move == null) moves[slot] = move = new SingleMove(piece, source, ticket, destination);
+		return move;
+	}
+
+	/**
+	 * Same as {@link MoveCodec#decode(long)}, but single moves are interned.
+	 *
+	 * @param move the encoded move
+	 * @return the move equal to the one that was encoded
+	 */
+	@Nonnull public Move decode(long move) {
+		if (MoveCodec.isDouble(move))
+			return new DoubleMove(MoveCodec.piece(move), MoveCodec.source(move),
+					MoveCodec.ticket1(move), MoveCodec.destination1(move),
+					MoveCodec.ticket2(move), MoveCodec.destination2(move));
+		return single(PIECES[MoveCodec.pieceIndex(move)], MoveCodec.source(move),
+				MoveCodec.ticket1(move), MoveCodec.destination1(move));
+	}
+
+	private int edge(int source, int destination) {
+		int from = graph.indexOf(source), to = graph.indexOf(destination);
+		return from < 0 || to < 0 ? -1 : graph.edge(from, to);
+	}
+}
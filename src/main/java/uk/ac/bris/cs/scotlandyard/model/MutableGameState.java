@@ -0,0 +1,424 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.Piece.Detective;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * A game state for tree search that is changed in place: {@link #play(long)} applies a move and
+ * {@link #undo()} takes back the last one, neither copies players or the travel log.
+ * <br>
+ * The rules are exactly those of the game states made by {@link MyGameStateFactory}. Convert at
+ * the root of a search with {@link #of(Board)} and back with {@link #toGameState()}.
+ * <br>
+ * Everything returned through the {@link Board} methods is a snapshot taken at the time of the
+ * call; the primitive queries such as {@link #locationOf(Piece)} and
+ * {@link #availableMoves(MoveList)} do not allocate. This class is not thread safe.
+ */
+public final class MutableGameState implements Board {
+
+	private static final Ticket[] TICKETS = Ticket.values();
+	private static final Piece[] PIECES = ScotlandYard.ALL_PIECES.toArray(new Piece[0]);
+	private static final int MRX = 0;
+	private static final int DOUBLE = Ticket.DOUBLE.ordinal();
+
+	private final GameSetup setup;
+	private final MoveGenerator generator;
+	private final ImmutableSet<Piece> players;
+	// pieces as bits of their index in ScotlandYard.ALL_PIECES
+	private final int detectives;
+	private final int[] locations = new int[PIECES.length];
+	private final int[][] tickets = new int[PIECES.length][TICKETS.length];
+	// the tickets in each piece's ticket map as bits of their ordinals, see Player#give(Ticket)
+	private final int[] ticketMasks = new int[PIECES.length];
+	private final long[] occupied;
+	private final LogEntry[] log;
+	private int logSize;
+	private int remaining;
+	private long key;
+
+	private long[] history = new long[32];
+	private int[] remainingHistory = new int[32];
+	private long[] keyHistory = new long[32];
+	private int depth;
+
+	private MutableGameState(GameSetup setup, ImmutableSet<Piece> players, List<LogEntry> log) {
+		this.setup = setup;
+		this.generator = setup.moveGenerator();
+		this.players = players;
+		int detectives = 0;
+		for (Piece piece : players) if (piece.isDetective()) detectives |= bit(piece);
+		this.detectives = detectives;
+		this.occupied = new long[generator.words()];
+		this.log = log.toArray(new LogEntry[Math.max(setup.moves.size(), log.size())]);
+		this.logSize = log.size();
+	}
+
+	/**
+	 * @param board the board, normally a {@link GameState} at the root of a search
+	 * @return a mutable copy of the board
+	 * @throws IllegalArgumentException if MrX's location cannot be told from the board, use
+	 * {@link #of(Board, int)} instead
+	 */
+	@Nonnull public static MutableGameState of(@Nonnull Board board) {
+		return of(board, MyGameStateFactory.mrXLocationOf(board).orElseThrow(() ->
+				new IllegalArgumentException("MrX's location is not known to the board")));
+	}
+
+	/**
+	 * @param board the board, normally a {@link GameState} at the root of a search
+	 * @param mrXLocation where MrX is
+	 * @return a mutable copy of the board
+	 */
+	@Nonnull public static MutableGameState of(@Nonnull Board board, int mrXLocation) {
+		var state = new MutableGameState(board.getSetup(), board.getPlayers(),
+				board.getMrXTravelLog());
+		for (Piece piece : board.getPlayers()) {
+			int index = ScotlandYard.pieceIndex(piece);
+			TicketBoard ticketBoard = board.getPlayerTickets(piece).orElseThrow();
+			for (Ticket ticket : TICKETS)
+				state.tickets[index][ticket.ordinal()] = ticketBoard.getCount(ticket);
+			state.ticketMasks[index] = MyGameStateFactory.ticketMaskOf(board, piece);
+			state.locations[index] = piece.isMrX() ? mrXLocation :
+					board.getDetectiveLocation((Detective) piece).orElseThrow();
+			if (piece.isDetective() && state.generator.contains(state.locations[index]))
+				state.flip(state.locations[index]);
+		}
+		for (Piece piece : MyGameStateFactory.remainingOf(board)) state.remaining |= bit(piece);
+		state.key = Zobrist.hash(state);
+		return state;
+	}
+
+	/**
+	 * @return the current position as an immutable game state
+	 */
+	@Nonnull public GameState toGameState() {
+		Player mrX = null;
+		var detectives = ImmutableList.<Player>builder();
+		for (Piece piece : ScotlandYard.ALL_PIECES) {
+			if (!players.contains(piece)) continue;
+			int index = ScotlandYard.pieceIndex(piece);
+			var player = new Player(piece, Stream.of(TICKETS)
+					.filter(ticket -> inTicketMap(index, ticket))
+					.collect(ImmutableMap.toImmutableMap(
+							Function.identity(), ticket -> tickets[index][ticket.ordinal()])),
+					locations[index]);
+			if (piece.isMrX()) mrX = player;
+			else detectives.add(player);
+		}
+		return new MyGameStateFactory().resume(setup, pieces(remaining),
+				ImmutableList.copyOf(Arrays.asList(log).subList(0, logSize)), mrX,
+				detectives.build());
+	}
+
+	/**
+	 * Applies a move in place. The move must be one of {@link #availableMoves(MoveList)}, it is
+	 * not checked.
+	 *
+	 * @param move the move encoded with {@link MoveCodec}
+	 */
+	public void play(long move) {
+		if (depth == history.length) {
+			history = Arrays.copyOf(history, depth * 2);
+			remainingHistory = Arrays.copyOf(remainingHistory, depth * 2);
+			keyHistory = Arrays.copyOf(keyHistory, depth * 2);
+		}
+		history[depth] = move;
+		keyHistory[depth] = key;
+		remainingHistory[depth++] = remaining;
+
+		int piece = MoveCodec.pieceIndex(move);
+		int source = MoveCodec.source(move);
+		Ticket ticket1 = MoveCodec.ticket1(move);
+		int destination1 = MoveCodec.destination1(move);
+		// the features the move can change are swapped out of the key before and back in after
+		long changed = movedKey(piece) ^ Zobrist.logSize(logSize) ^ Zobrist.remaining(remaining);
+		tickets[piece][ticket1.ordinal()]--;
+		if (MoveCodec.isDouble(move)) {
+			Ticket ticket2 = MoveCodec.ticket2(move);
+			int destination2 = MoveCodec.destination2(move);
+			tickets[piece][ticket2.ordinal()]--;
+			tickets[piece][DOUBLE]--;
+			appendLog(ticket1, destination1);
+			appendLog(ticket2, destination2);
+			locations[piece] = destination2;
+		} else {
+			locations[piece] = destination1;
+			if (piece == MRX) appendLog(ticket1, destination1);
+			else {
+				// detectives hand their tickets to MrX, if his ticket map has them at all
+				if (inTicketMap(MRX, ticket1)) tickets[MRX][ticket1.ordinal()]++;
+				flip(source);
+				flip(destination1);
+			}
+		}
+		remaining = nextRemaining(remainingHistory[depth - 1], piece, source, ticket1);
+		changed ^= movedKey(piece) ^ Zobrist.logSize(logSize) ^ Zobrist.remaining(remaining);
+		key ^= changed;
+	}
+
+	/**
+	 * @param move the move, see {@link #play(long)}
+	 */
+	public void play(@Nonnull Move move) { play(MoveCodec.encode(move)); }
+
+	/**
+	 * Takes back the last move made with {@link #play(long)}
+	 *
+	 * @throws IllegalStateException if there are no moves to take back
+	 */
+	public void undo() {
+		if (depth == 0) throw new IllegalStateException("No moves to undo");
+		long move = history[--depth];
+		remaining = remainingHistory[depth];
+		key = keyHistory[depth];
+
+		int piece = MoveCodec.pieceIndex(move);
+		int source = MoveCodec.source(move);
+		Ticket ticket1 = MoveCodec.ticket1(move);
+		tickets[piece][ticket1.ordinal()]++;
+		locations[piece] = source;
+		if (MoveCodec.isDouble(move)) {
+			tickets[piece][MoveCodec.ticket2(move).ordinal()]++;
+			tickets[piece][DOUBLE]++;
+			logSize -= 2;
+		} else if (piece == MRX) {
+			logSize--;
+		} else {
+			if (inTicketMap(MRX, ticket1)) tickets[MRX][ticket1.ordinal()]--;
+			flip(MoveCodec.destination1(move));
+			flip(source);
+		}
+	}
+
+	/**
+	 * @return the number of moves that can be taken back with {@link #undo()}
+	 */
+	public int depth() { return depth; }
+
+	/**
+	 * @param piece the piece
+	 * @return where the detective is; -1 for MrX, see {@link #mrXLocation()}, and for a piece that
+	 * is not part of the game
+	 */
+	@Override public int locationOf(@Nonnull Piece piece) {
+		return piece.isDetective() && players.contains(piece) ?
+				locations[ScotlandYard.pieceIndex(piece)] : -1;
+	}
+
+	/**
+	 * @return where MrX really is; unlike the {@link Board} methods this gives him away, it is for
+	 * search code that plays both sides
+	 */
+	public int mrXLocation() { return locations[MRX]; }
+
+	/**
+	 * @param piece the piece
+	 * @param ticket the ticket
+	 * @return how many of the ticket the piece holds; 0 if the piece is not part of the game
+	 */
+	@Override public int ticketCount(@Nonnull Piece piece, @Nonnull Ticket ticket) {
+		return players.contains(piece) ? tickets[ScotlandYard.pieceIndex(piece)][ticket.ordinal()] : 0;
+	}
+
+	/**
+	 * @return the Zobrist key of the current position, the same key a
+	 * {@link Board.GameState#zobristKey()} of this position has
+	 */
+	public long zobristKey() { return key; }
+
+	/**
+	 * @return the number of entries in MrX's travel log
+	 */
+	public int logSize() { return logSize; }
+
+	/**
+	 * @return whether the game has a winner, see {@link #getWinner()}
+	 */
+	public boolean isGameOver() { return winners() != 0; }
+
+	/**
+	 * Same as checking that the move is one of {@link #getAvailableMoves()}, worked out from the
+	 * move itself without generating any moves.
+	 *
+	 * @param move the move
+	 * @return whether the move can be made from the current position
+	 */
+	public boolean isAvailable(@Nonnull Move move) {
+		if (winners() != 0) return false;
+		if (!(move instanceof Move.SingleMove || move instanceof Move.DoubleMove)) return false;
+		Piece piece = move.commencedBy();
+		if (!players.contains(piece) || (remaining & bit(piece)) == 0) return false;
+		int index = ScotlandYard.pieceIndex(piece);
+		int[] held = tickets[index];
+		if (locations[index] != move.source()) return false;
+
+		if (move instanceof Move.SingleMove) {
+			Move.SingleMove single = (Move.SingleMove) move;
+			return held[single.ticket.ordinal()] > 0
+					&& generator.reaches(single.ticket, single.source(), single.destination)
+					&& !MoveGenerator.isOccupied(single.destination, occupied);
+		}
+		Move.DoubleMove doubleMove = (Move.DoubleMove) move;
+		int left = held[doubleMove.ticket2.ordinal()]
+				- (doubleMove.ticket1 == doubleMove.ticket2 ? 1 : 0);
+		return index == MRX
+				&& setup.moves.size() - logSize >= 2
+				&& held[DOUBLE] > 0
+				&& held[doubleMove.ticket1.ordinal()] > 0 && left > 0
+				&& generator.reaches(doubleMove.ticket1, doubleMove.source(), doubleMove.destination1)
+				&& !MoveGenerator.isOccupied(doubleMove.destination1, occupied)
+				&& generator.reaches(doubleMove.ticket2, doubleMove.destination1, doubleMove.destination2)
+				&& !MoveGenerator.isOccupied(doubleMove.destination2, occupied);
+	}
+
+	/**
+	 * Appends the available moves, encoded with {@link MoveCodec}, to a move list; nothing is
+	 * appended once the game is over.
+	 *
+	 * @param out the list to append to
+	 */
+	public void availableMoves(@Nonnull MoveList out) {
+		if (winners() != 0) return;
+		for (int piece = 1; piece < PIECES.length; piece++) {
+			if ((remaining & detectives & 1 << piece) == 0) continue;
+			generator.singleMoves(PIECES[piece], locations[piece], tickets[piece], occupied, out);
+		}
+		if ((remaining & 1 << MRX) != 0) {
+			generator.singleMoves(PIECES[MRX], locations[MRX], tickets[MRX], occupied, out);
+			if (setup.moves.size() - logSize >= 2)
+				generator.doubleMoves(PIECES[MRX], locations[MRX], tickets[MRX], occupied, out);
+		}
+	}
+
+	@Nonnull @Override public GameSetup getSetup() { return setup; }
+	@Nonnull @Override public ImmutableSet<Piece> getPlayers() { return players; }
+	@Nonnull @Override public Optional<Integer> getDetectiveLocation(Detective detective) {
+		return players.contains(detective) ?
+				Optional.of(locations[ScotlandYard.pieceIndex(detective)]) : Optional.empty();
+	}
+	@Nonnull @Override public Optional<TicketBoard> getPlayerTickets(Piece piece) {
+		if (!players.contains(piece)) return Optional.empty();
+		int[] counts = tickets[ScotlandYard.pieceIndex(piece)].clone();
+		return Optional.of(ticket -> counts[ticket.ordinal()]);
+	}
+	@Nonnull @Override public ImmutableList<LogEntry> getMrXTravelLog() {
+		return ImmutableList.copyOf(Arrays.asList(log).subList(0, logSize));
+	}
+	@Nonnull @Override public ImmutableSet<Piece> getWinner() { return pieces(winners()); }
+	@Nonnull @Override public ImmutableSet<Move> getAvailableMoves() {
+		var moves = new MoveList();
+		availableMoves(moves);
+		return ImmutableSet.copyOf(moves.toMoves());
+	}
+
+	// same rules as the winner in MyGameStateFactory, as a set of piece bits
+	private int winners() {
+		for (int piece = 1; piece < PIECES.length; piece++) {
+			// Detective wins if MrX is captured
+			if ((detectives & 1 << piece) != 0 && locations[piece] == locations[MRX])
+				return detectives;
+		}
+		boolean detectiveHasMove = false;
+		for (int piece = 1; piece < PIECES.length && !detectiveHasMove; piece++) {
+			if ((detectives & 1 << piece) != 0) detectiveHasMove = hasSingleMove(piece);
+		}
+		// mr x wins when detectives has no more moves
+		if (!detectiveHasMove) return 1 << MRX;
+		if ((remaining & 1 << MRX) != 0) {
+			// Detective wins if MrX is cornered
+			if (!hasSingleMove(MRX)) return detectives;
+			// mr x wins when mr x travel log is completely full
+			if (logSize == setup.moves.size()) return 1 << MRX;
+		}
+		return 0;
+	}
+
+	// the pieces left to move after the given piece moved; this follows how
+	// MyGameStateFactory works the remaining pieces out, moves are judged as they were before
+	// the piece moved but with the detectives where they are now
+	private int nextRemaining(int previous, int mover, int source, Ticket ticket) {
+		int next = previous & ~(1 << mover);
+		if (mover == MRX) next |= detectives;
+		for (int piece = 0; piece < PIECES.length; piece++) {
+			if ((previous & 1 << piece) == 0) continue;
+			if (piece == MRX) {
+				// MrX can only be stuck here if a detective moved, in which case he has just
+				// been given the detective's ticket if his ticket map has it
+				if (mover == MRX) continue;
+				boolean given = inTicketMap(MRX, ticket);
+				if (given) tickets[MRX][ticket.ordinal()]--;
+				boolean stuck = !hasSingleMove(MRX);
+				if (given) tickets[MRX][ticket.ordinal()]++;
+				if (stuck && setup.moves.size() - logSize >= 2
+						&& generator.hasDoubleMove(locations[MRX], tickets[MRX], occupied))
+					next |= 1 << MRX;
+			} else if (piece == mover) {
+				int location = locations[piece];
+				locations[piece] = source;
+				tickets[piece][ticket.ordinal()]++;
+				if (!hasSingleMove(piece)) next |= 1 << MRX;
+				tickets[piece][ticket.ordinal()]--;
+				locations[piece] = location;
+			} else if (!hasSingleMove(piece)) {
+				next |= 1 << MRX;
+			}
+		}
+		return next == 0 ? 1 << MRX : next;
+	}
+
+	// the pieces that still have to move in this round
+	ImmutableSet<Piece> remaining() { return pieces(remaining); }
+
+	// the tickets in the piece's ticket map, see MyGameStateFactory#ticketMaskOf(Board, Piece)
+	int ticketMask(Piece piece) { return ticketMasks[ScotlandYard.pieceIndex(piece)]; }
+
+	private boolean inTicketMap(int piece, Ticket ticket) {
+		return (ticketMasks[piece] & 1 << ticket.ordinal()) != 0;
+	}
+
+	// the keys of the pieces a move by the given piece changes: the piece itself and MrX, who
+	// is handed the tickets of detectives
+	private long movedKey(int piece) {
+		return piece == MRX ? pieceKey(MRX) : pieceKey(piece) ^ pieceKey(MRX);
+	}
+
+	private long pieceKey(int piece) {
+		long key = Zobrist.location(piece, locations[piece]);
+		for (Ticket ticket : TICKETS) key ^= Zobrist.tickets(piece, ticket, tickets[piece][ticket.ordinal()]);
+		return key;
+	}
+
+	private boolean hasSingleMove(int piece) {
+		return generator.hasSingleMove(locations[piece], tickets[piece], occupied);
+	}
+
+	private void appendLog(Ticket ticket, int location) {
+		log[logSize] = setup.moves.get(logSize) ?
+				LogEntry.reveal(ticket, location) : LogEntry.hidden(ticket);
+		logSize++;
+	}
+
+	private void flip(int node) { occupied[node >>> 6] ^= 1L << node; }
+
+	private static int bit(Piece piece) { return 1 << ScotlandYard.pieceIndex(piece); }
+
+	private static ImmutableSet<Piece> pieces(int bits) {
+		var pieces = ImmutableSet.<Piece>builder();
+		for (int piece = 0; piece < PIECES.length; piece++)
+			if ((bits & 1 << piece) != 0) pieces.add(PIECES[piece]);
+		return pieces.build();
+	}
+}
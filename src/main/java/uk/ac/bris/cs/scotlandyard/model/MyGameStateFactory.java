@@ -1,9 +1,16 @@
 package uk.ac.bris.cs.scotlandyard.model;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.random.RandomGenerator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.annotation.Nonnull;
 import javax.crypto.spec.PSource;
@@ -21,34 +28,110 @@ public final class MyGameStateFactory implements Factory<GameState> {
 	@Nonnull @Override
 	public GameState build(GameSetup setup, Player mrX, ImmutableList<Player> detectives) {
 		// return new instance of MyGameState
-		return new MyGameState(setup, ImmutableSet.of(Piece.MrX.MRX), ImmutableList.of(), mrX, detectives);
+		return MyGameState.checked(setup, ImmutableSet.of(Piece.MrX.MRX), TravelLog.EMPTY, mrX, detectives,
+				zobristKey(ImmutableSet.of(Piece.MrX.MRX), ImmutableList.of(), mrX, detectives));
 	}
 
+	/**
+	 * Creates a game state part way through a game, for example to hand a position searched with
+	 * {@link MutableGameState} back as a {@link GameState}.
+	 *
+	 * @param setup the game setup
+	 * @param remaining the pieces that still have to move in this round
+	 * @param log MrX's travel log so far
+	 * @param mrX MrX player
+	 * @param detectives detective players
+	 * @return the game state
+	 */
+	@Nonnull public GameState resume(GameSetup setup, ImmutableSet<Piece> remaining,
+			ImmutableList<LogEntry> log, Player mrX, ImmutableList<Player> detectives) {
+		return MyGameState.checked(setup, Objects.requireNonNull(remaining),
+				TravelLog.of(log), mrX, detectives,
+				zobristKey(remaining, log, mrX, detectives));
+	}
+
+	// hashes a position from scratch, game states made by advance update their parent's key
+	private static long zobristKey(ImmutableSet<Piece> remaining, ImmutableList<LogEntry> log,
+			Player mrX, List<Player> detectives) {
+		long key = Zobrist.player(mrX) ^ Zobrist.logSize(log.size()) ^ Zobrist.remaining(remaining);
+		for (Player detective : detectives) key ^= Zobrist.player(detective);
+		return key;
+	}
+
+	// the pieces that still have to move in this round; boards that are not one of our game
+	// states only show this through who their available moves are commenced by
+	static ImmutableSet<Piece> remainingOf(Board board) {
+		if (board instanceof MyGameState) return ((MyGameState) board).remaining;
+		if (board instanceof MutableGameState) return ((MutableGameState) board).remaining();
+		ImmutableSet<Piece> remaining = board.getAvailableMoves().stream()
+				.map(Move::commencedBy)
+				.collect(ImmutableSet.toImmutableSet());
+		return remaining.isEmpty() ? ImmutableSet.of(Piece.MrX.MRX) : remaining;
+	}
+
+	// where MrX is, if the board gives it away: our game states know it, for other boards it is
+	// the source of MrX's available moves
+	static OptionalInt mrXLocationOf(Board board) {
+		if (board instanceof MyGameState) return OptionalInt.of(((MyGameState) board).mrX.location());
+		if (board instanceof MutableGameState)
+			return OptionalInt.of(((MutableGameState) board).mrXLocation());
+		return board.getAvailableMoves().stream()
+				.filter(move -> move.commencedBy().isMrX())
+				.mapToInt(Move::source)
+				.findAny();
+	}
+
+	// the tickets in a player's ticket map as bits of their ordinals, see Player#give(Ticket): our
+	// game states keep the player and mutable states the mask, for other boards every ticket is
+	// taken to be in the map
+	static int ticketMaskOf(Board board, Piece piece) {
+		if (board instanceof MutableGameState) return ((MutableGameState) board).ticketMask(piece);
+		if (!(board instanceof MyGameState)) return (1 << ScotlandYard.Ticket.values().length) - 1;
+		int mask = 0;
+		var player = ((MyGameState) board).byIndex[ScotlandYard.pieceIndex(piece)];
+		for (ScotlandYard.Ticket ticket : player.tickets().keySet()) mask |= 1 << ticket.ordinal();
+		return mask;
+	}
+
+	private static final MoveSet NO_MOVES = new MoveSet(new MoveList(1));
+
 	// constructors
-	private final class MyGameState implements GameState {
-		private GameSetup setup;
-		private ImmutableSet<Piece> remaining;
-		// hold the travel log and count the moves Mr has taken
-		private ImmutableList<LogEntry> log;
+	private static final class MyGameState implements GameState {
+		private final GameSetup setup;
+		private final ImmutableSet<Piece> remaining;
+		// hold the travel log and count the moves Mr has taken, sharing the entries with the
+		// states before it
+		private final TravelLog log;
 		// hold the MrX player
-		private Player mrX;
+		private final Player mrX;
 		// hold the detectives
-		private List<Player> detectives;
+		private final ImmutableList<Player> detectives;
 		// calls all players
-		private ImmutableList<Player> allPlayers;
-		// hold the currently possible/available moves
-		private ImmutableSet<Move> moves;
-		// hold the current winner(s)
-		private ImmutableSet<Piece> winner;
-
+		private final ImmutableList<Player> allPlayers;
+		// the pieces of all players, the same for every state of a game
+		private final ImmutableSet<Piece> players;
+		// the players by ScotlandYard#pieceIndex, null for pieces not in the game
+		private final Player[] byIndex = new Player[ScotlandYard.ALL_PIECES.size()];
+		// hold the Zobrist key of this position
+		private final long key;
+		// hold the current winner(s), worked out by checking that moves exist the first time it
+		// is needed
+		private final Supplier<ImmutableSet<Piece>> winner = Suppliers.memoize(this::computeWinner);
+		// hold the currently possible/available moves, encoded; only generated once nobody has won
+		private final Supplier<MoveSet> moves = Suppliers.memoize(this::computeMoves);
+		// the available moves as Move objects, only made when asked for
+		private final Supplier<ImmutableSet<Move>> availableMoves =
+				Suppliers.memoize(this::decodeMoves);
 
 
 		private MyGameState(
 				final GameSetup setup,
 				final ImmutableSet<Piece> remaining,
-				final ImmutableList<LogEntry> log,
+				final TravelLog log,
 				final Player mrX,
-				final List<Player> detectives) {
+				final List<Player> detectives,
+				final ImmutableSet<Piece> players,
+				final long key) {
 
 			// create a list of all new players
 			List<Player> allPlayers = new ArrayList<>();
@@ -60,12 +143,24 @@ public final class MyGameStateFactory implements Factory<GameState> {
 			this.remaining = remaining;
 			this.log = log;
 			this.mrX = mrX;
-			this.detectives = detectives;
+			this.detectives = ImmutableList.copyOf(detectives);
 			this.allPlayers = ImmutableList.copyOf(allPlayers);
+			this.players = players;
+			this.key = key;
+			for (Player player : this.allPlayers) byIndex[ScotlandYard.pieceIndex(player.piece())] = player;
+		}
 
-			// initialise winner and moves
-			this.winner = getWinner();
-			this.moves = getAvailableMoves();
+		// a game state from outside, so the players and setup are checked first; states made by
+		// advance come from a checked state and are valid as they are
+		private static MyGameState checked(
+				final GameSetup setup,
+				final ImmutableSet<Piece> remaining,
+				final TravelLog log,
+				final Player mrX,
+				final List<Player> detectives,
+				final long key) {
+			MyGameState state = new MyGameState(setup, remaining, log, mrX, detectives,
+					players(mrX, detectives), key);
 
 			// checks whether the parameters passed are not null
 			if(setup.moves.isEmpty()) throw new IllegalArgumentException("Moves is empty!");
@@ -97,6 +192,14 @@ public final class MyGameStateFactory implements Factory<GameState> {
 						throw new IllegalArgumentException("Detectives at same location!");
 				}
 			}
+			return state;
+		}
+
+		private static ImmutableSet<Piece> players(Player mrX, List<Player> detectives) {
+			var players = ImmutableSet.<Piece>builderWithExpectedSize(detectives.size() + 1);
+			players.add(mrX.piece());
+			for (Player detective : detectives) players.add(detective.piece());
+			return players.build();
 		}
 
 		// GETTERS
@@ -108,24 +211,27 @@ public final class MyGameStateFactory implements Factory<GameState> {
 		// return all players in the game
 		@Nonnull @Override
 		public ImmutableSet<Piece> getPlayers() {
-
-			Set<Piece> players = new HashSet<>();
-			for(Player detective : detectives) {
-				players.add(detective.piece());
-			}
-			players.add(mrX.piece());
-
-			return ImmutableSet.copyOf(players);
+			return players;
 		}
 
 		// get location of detective
 		@Nonnull @Override
 		public Optional<Integer> getDetectiveLocation(Piece.Detective detective){
-			// For all detectives, if Detective#piece == detective, then return the location in an Optional.of();
-			for (Player player: detectives) {
-				if(player.piece().equals(detective)) return Optional.of(player.location());
-			}
-			return Optional.empty();
+			Player player = getCurrentPlayer(detective);
+			return player == null ? Optional.empty() : Optional.of(player.location());
+		}
+
+		// mr x's location stays hidden, as with getDetectiveLocation
+		@Override
+		public int locationOf(@Nonnull Piece piece) {
+			Player player = getCurrentPlayer(piece);
+			return player == null || player.isMrX() ? -1 : player.location();
+		}
+
+		@Override
+		public int ticketCount(@Nonnull Piece piece, @Nonnull ScotlandYard.Ticket ticket) {
+			Player player = getCurrentPlayer(piece);
+			return player == null ? 0 : player.count(ticket);
 		}
 
 		/**
@@ -134,29 +240,14 @@ public final class MyGameStateFactory implements Factory<GameState> {
 		 */
 		@Nonnull @Override
 		public Optional<TicketBoard> getPlayerTickets(Piece piece) {
-			ImmutableSet<Piece> player = getPlayers();
-
-			// if the piece is not in the player set
-			if(!player.contains(piece)) return Optional.empty();
-
-			// if the player is Mr X
-			if(piece.isMrX()) return Optional.of(ticket -> mrX.tickets().getOrDefault(ticket, 0));
-			// if the player is detective
-			else if(piece.isDetective())
-				// get tickets of each detective
-				for(Player p: detectives) {
-					// check if the player is the current piece
-					if (p.piece() == piece) {
-						return Optional.of(ticket -> p.tickets().getOrDefault(ticket, 0));
-					}
-				}
-
-			return Optional.empty();
+			Player player = getCurrentPlayer(piece);
+			// empty if the piece is not in the player set
+			return player == null ? Optional.empty() : Optional.of(player::count);
 		}
 
 		@Nonnull @Override
 		public ImmutableList<LogEntry> getMrXTravelLog(){
-			return log;
+			return log.asList();
 		}
 
 		/**
@@ -169,73 +260,102 @@ public final class MyGameStateFactory implements Factory<GameState> {
 		 */
 		@Nonnull @Override
 		public ImmutableSet<Piece> getWinner() {
-			// initialise empty list to store all detectives
-			// Why: when we return, we will return the whole list
-			// when one detective wins, ALL detectives win
-			List<Piece> detectiveWinner = new ArrayList<>();
-			List<Integer> detectivesLocation = new ArrayList<>();
+			return winner.get();
+		}
 
-			for (Player detective : detectives) {
-				// add all the detective pieces and location into the list
-				detectiveWinner.add(detective.piece());
-				detectivesLocation.add(detective.location());
-			}
+		/**
+		 * return the current available moves of the game.
+		 * This is mutually exclusive with {@link #getWinner()}
+		 */
+		@Nonnull @Override
+		public ImmutableSet<Move> getAvailableMoves() {
+			return availableMoves.get();
+		}
+
+		// the streaming methods go straight to the encoded moves, decoding one move at a time
+		@Override
+		public void forEachAvailableMove(@Nonnull Consumer<? super Move> action) {
+			MoveSet moves = this.moves.get();
+			MoveTable table = setup.moveTable();
+			for (int i = 0; i < moves.size(); i++) action.accept(table.decode(moves.get(i)));
+		}
+
+		@Nonnull @Override
+		public Stream<Move> availableMoveStream() {
+			return StreamSupport.stream(moves.get().spliterator(setup.moveTable()), false);
+		}
+
+		@Override
+		public int countAvailableMoves() {
+			return moves.get().size();
+		}
+
+		@Nonnull @Override
+		public Optional<Move> randomAvailableMove(@Nonnull RandomGenerator random) {
+			MoveSet moves = this.moves.get();
+			if (moves.isEmpty()) return Optional.empty();
+			return Optional.of(setup.moveTable().decode(moves.get(random.nextInt(moves.size()))));
+		}
+
+		// works out the winner by asking whether players have any move at all, which stops at
+		// the first one found instead of generating every move
+		private ImmutableSet<Piece> computeWinner() {
+			// when one detective wins, ALL detectives win
+			ImmutableSet<Piece> detectiveWinner = detectives.stream()
+					.map(Player::piece)
+					.collect(ImmutableSet.toImmutableSet());
 
 			for (Player detective : detectives) {
 				// Detective wins if MrX is captured
-				if (detective.location() == mrX.location()){
-					return ImmutableSet.copyOf(detectiveWinner);
-				}
+				if (detective.location() == mrX.location()) return detectiveWinner;
 			}
 
+			// nobody can move onto a detective
+			MoveGenerator generator = setup.moveGenerator();
+			long[] occupied = generator.occupancy(detectives);
+
+			// every detective is looked at, so a detective off the map is always reported
+			boolean detectiveHasMove = false;
+			for (Player detective : detectives)
+				detectiveHasMove |= generator.hasSingleMove(detective, detective.location(), occupied);
+
 			// mr x wins when detectives has no more moves
-			if (noDetectiveHasMove(detectives)){
-				return ImmutableSet.of(mrX.piece());
-			}
+			if (!detectiveHasMove) return ImmutableSet.of(mrX.piece());
 
-			// Detective wins if MrX is cornered
-			if (makeSingleMoves(setup, detectives, mrX, mrX.location()).isEmpty() &&
-					makeDoubleMoves(setup, detectives, mrX, mrX.location(),log).isEmpty() &&
-					remaining.contains(mrX.piece())){
-				return ImmutableSet.copyOf(detectiveWinner);
-			}
+			if (remaining.contains(mrX.piece())) {
+				// Detective wins if MrX is cornered, every double move starts with a single move
+				// so there are no double moves either
+				if (!generator.hasSingleMove(mrX, mrX.location(), occupied)) return detectiveWinner;
 
-			// mr x wins when mr x travel log is completely full
-			if (getMrXTravelLog().size() == setup.moves.size() &&
-					remaining.contains(mrX.piece())){
-				return ImmutableSet.of(mrX.piece());
+				// mr x wins when mr x travel log is completely full
+				if (log.size() == setup.moves.size()) return ImmutableSet.of(mrX.piece());
 			}
 			return ImmutableSet.of();
 		}
 
+		// turns the encoded moves into the set handed out by getAvailableMoves()
+		private ImmutableSet<Move> decodeMoves() {
+			return moves.get().toMoves(setup.moveTable());
+		}
 
+		// generates the moves of the pieces still to play, there are none once someone has won
+		private MoveSet computeMoves() {
+			if (!winner.get().isEmpty()) return NO_MOVES;
 
-		/**
-		 * return the current available moves of the game.
-		 * This is mutually exclusive with {@link #getWinner()}
-		 */
-		@Nonnull @Override
-		public ImmutableSet<Move> getAvailableMoves() {
-			// initialise an empty set to store the moves
-			HashSet<Move> moves = new HashSet<>();
-
-			// if there's a winner, there will be no available moves
-			if (!getWinner().isEmpty()) {
-				return ImmutableSet.of();
-			}
-			// case for mr x
-			if(remaining.contains(mrX.piece())) {
-				moves.addAll(makeSingleMoves(setup, detectives, mrX, mrX.location()));
-				moves.addAll(makeDoubleMoves(setup, detectives, mrX, mrX.location(), log));
+			MoveGenerator generator = setup.moveGenerator();
+			long[] occupied = generator.occupancy(detectives);
+			MoveList moves = new MoveList();
+			for (Player detective : detectives) {
+				if (remaining.contains(detective.piece()))
+					generator.singleMoves(detective, detective.location(), occupied, moves);
 			}
-
-			// case for detectives
-			for(Player detective: detectives) {
-				if(remaining.contains(detective.piece())) {
-					moves.addAll(makeSingleMoves(setup, detectives, detective, detective.location()));
-				}
+			if (remaining.contains(mrX.piece())) {
+				generator.singleMoves(mrX, mrX.location(), occupied, moves);
+				// a double move needs two rounds left, the generator checks the double ticket itself
+				if (setup.moves.size() - log.size() >= 2)
+					generator.doubleMoves(mrX, mrX.location(), occupied, moves);
 			}
-			return ImmutableSet.copyOf(moves);
+			return new MoveSet(moves);
 		}
 
 		// return a new state from the current GameState and a provided Move
@@ -244,19 +364,49 @@ public final class MyGameStateFactory implements Factory<GameState> {
 		@Nonnull @Override
 		public GameState advance(Move move) {
 			// error handling
-			if(!moves.contains(move)) throw new IllegalArgumentException("Illegal move: " + move);
+			// checked on the move alone, the available moves need not be generated for this
+			if(!isAvailable(move)) throw new IllegalArgumentException("Illegal move: " + move);
+			return successor(move, null);
+		}
+
+		// the moves are checked and played in place on a mutable copy, only the state after the
+		// last move is built
+		@Nonnull @Override
+		public GameState advanceAll(@Nonnull List<Move> moves) {
+			if (moves.isEmpty()) return this;
+			var state = MutableGameState.of(this, mrX.location());
+			for (Move move : moves) {
+				if(!state.isAvailable(move)) throw new IllegalArgumentException("Illegal move: " + move);
+				state.play(move);
+			}
+			return state.toGameState();
+		}
+
+		// every child of this state is made from the same occupancy of the current detectives
+		@Nonnull @Override
+		public ImmutableMap<Move, GameState> expandAll(int parallelThreshold) {
+			if (!winner.get().isEmpty()) return ImmutableMap.of();
+			long[] occupied = setup.moveGenerator().occupancy(detectives);
+			return Successors.expand(getAvailableMoves().asList(),
+					move -> successor(move, occupied), parallelThreshold);
+		}
+
+		// the state after an available move; occupied is where the detectives of this state are,
+		// or null to work it out
+		private MyGameState successor(Move move, long[] occupied) {
 
 			// initialise lists for the things that needs to be updated: log, players, remaining, moves
-			List<LogEntry> updatedLog = new ArrayList<>(log); // can store the updated moves for mr x
 			List<Player> updatedDetectives = new ArrayList<>();
 			Player updatedMrX;
 			List<Piece> oldRemaining = new ArrayList<>(remaining);
 			List<Piece> updatedRemaining = new ArrayList<>();
 
-			Move.Visitor<Player> visitor = new Move.Visitor<>() {
+			var visitor = new Move.Visitor<Player>() {
 
 				// gets whether the current player is detective or mr x
 				Player currentPlayer = getCurrentPlayer(move.commencedBy());
+				// can store the updated moves for mr x, appended onto this state's log
+				TravelLog updatedLog = log;
 				@Override
 				public Player visit(Move.SingleMove move) {
 					Player newPlayer = currentPlayer.use(move.ticket).at(move.destination);
@@ -265,14 +415,10 @@ public final class MyGameStateFactory implements Factory<GameState> {
 						// check if mr x's moves are revealed
 						if(setup.moves.get(log.size())) {
 							// revealed moves
-							updatedLog.add(LogEntry.reveal(move.ticket, move.destination));
+							updatedLog = updatedLog.append(LogEntry.reveal(move.ticket, move.destination));
 						}
 						// hidden moves
-						else updatedLog.add(LogEntry.hidden(move.ticket));
-					}
-					else {
-						// give mr x with new ticket from detectives
-						mrX = mrX.give(move.tickets());
+						else updatedLog = updatedLog.append(LogEntry.hidden(move.ticket));
 					}
 					return newPlayer;
 				}
@@ -286,25 +432,25 @@ public final class MyGameStateFactory implements Factory<GameState> {
 
 					// case1: reveal + reveal
 					if (setup.moves.get(log.size()) && setup.moves.get(log.size() + 1)) {
-						updatedLog.add(LogEntry.reveal(move.ticket1, move.destination1));
-						updatedLog.add(LogEntry.reveal(move.ticket2, move.destination2));
+						updatedLog = updatedLog.append(LogEntry.reveal(move.ticket1, move.destination1));
+						updatedLog = updatedLog.append(LogEntry.reveal(move.ticket2, move.destination2));
 					}
 
 					// case2: reveal + hidden
 					else if (setup.moves.get(log.size())){
-						updatedLog.add(LogEntry.reveal(move.ticket1, move.destination1));
-						updatedLog.add(LogEntry.hidden(move.ticket2));
+						updatedLog = updatedLog.append(LogEntry.reveal(move.ticket1, move.destination1));
+						updatedLog = updatedLog.append(LogEntry.hidden(move.ticket2));
 					}
 						// case3: hidden + reveal
 					else if (setup.moves.get(log.size() + 1)) {
-						updatedLog.add(LogEntry.hidden(move.ticket1));
-						updatedLog.add(LogEntry.reveal(move.ticket2, move.destination2));
+						updatedLog = updatedLog.append(LogEntry.hidden(move.ticket1));
+						updatedLog = updatedLog.append(LogEntry.reveal(move.ticket2, move.destination2));
 					}
 
 					// case4: hidden + hidden
 					else {
-						updatedLog.add(LogEntry.hidden(move.ticket1));
-						updatedLog.add(LogEntry.hidden(move.ticket2));
+						updatedLog = updatedLog.append(LogEntry.hidden(move.ticket1));
+						updatedLog = updatedLog.append(LogEntry.hidden(move.ticket2));
 					}
 
 					return newPlayer;
@@ -312,6 +458,7 @@ public final class MyGameStateFactory implements Factory<GameState> {
 			};
 
 			Player newPlayer = move.accept(visitor);
+			TravelLog updatedLog = visitor.updatedLog;
 
 			// only update updatedDetectives if newPlayer is a detective
 			for (Player p : detectives) {
@@ -332,11 +479,11 @@ public final class MyGameStateFactory implements Factory<GameState> {
 
 			// check if the new player is mr x
 			// if true, store the updatedPlayer to updatedMrX
-			// else, update updatedMrX with mrX
+			// else, give mr x the tickets the detective used; this state keeps its own mr x
 			if (newPlayer.isMrX()) {
 				updatedMrX = newPlayer;
 			} else {
-				updatedMrX = mrX;
+				updatedMrX = mrX.give(move.tickets());
 			}
 
 			//  remaining pieces in play for the current round
@@ -354,19 +501,21 @@ public final class MyGameStateFactory implements Factory<GameState> {
 				}
 			}
 
+			// mr x moving leaves the detectives where they are
+			long[] updatedOccupied = occupied != null && newPlayer.isMrX() ?
+					occupied : setup.moveGenerator().occupancy(updatedDetectives);
 			for(Piece p : remaining) {
 				Player player = getCurrentPlayer(p);
 				if(p.isMrX()) {
                     //The game is not over if MrX is cornered, but he can still
 					// escape using a double move, or secret move
-					if(makeSingleMoves(setup, updatedDetectives, player, player.location()).isEmpty()
-							&& !makeDoubleMoves(setup, updatedDetectives, updatedMrX, updatedMrX.location(),
-							ImmutableList.copyOf(updatedLog)).isEmpty() ) {
+					if(!hasSingleMove(setup, updatedOccupied, player)
+							&& hasDoubleMove(setup, updatedOccupied, updatedMrX, updatedLog.size())) {
 						updatedRemaining.add(updatedMrX.piece());
 					}
 				} else {
 					// check if a detective still has moves
-					if(makeSingleMoves(setup, updatedDetectives, player, player.location()).isEmpty()) {
+					if(!hasSingleMove(setup, updatedOccupied, player)) {
 						updatedRemaining.add(updatedMrX.piece());
 					}
 				}
@@ -377,112 +526,76 @@ public final class MyGameStateFactory implements Factory<GameState> {
 				updatedRemaining.add(updatedMrX.piece());
 			}
 
-			// return a new game state with all the updated states
-			return new MyGameState(setup, ImmutableSet.copyOf(updatedRemaining), ImmutableList.copyOf(updatedLog), updatedMrX, updatedDetectives);
-		}
-
-		/* --------------- HELPER FUNCTIONS   ----------- */
-
-		// helper function for advance
-		// gets the player from its piece (detective/ Mr X) --> piece to player
-		private Player getCurrentPlayer(Piece piece){
-			for (Player p: allPlayers) {
-				if(p.piece().equals(piece)) return p;
+			// update the Zobrist key by swapping out only what this move changed
+			long updatedKey = key
+					^ Zobrist.player(mrX) ^ Zobrist.player(updatedMrX)
+					^ Zobrist.logSize(log.size()) ^ Zobrist.logSize(updatedLog.size())
+					^ Zobrist.remaining(remaining) ^ Zobrist.remaining(updatedRemaining);
+			if (newPlayer.isDetective()) {
+				updatedKey ^= Zobrist.player(getCurrentPlayer(newPlayer.piece())) ^ Zobrist.player(newPlayer);
 			}
-			return null;
-		}
 
-		// helper function for getWinner()
-		public boolean noDetectiveHasMove(List<Player> detectives){
-			for (Player detective : detectives){
-				// check if there are available moves for any of the detectives
-				if (!makeSingleMoves(setup, detectives, detective, detective.location()).isEmpty()){
-					return false;
-				}
-			}
-			return true;
+			// return a new game state with all the updated states
+			return new MyGameState(setup, ImmutableSet.copyOf(updatedRemaining), updatedLog, updatedMrX, updatedDetectives, players, updatedKey);
 		}
 
-		// helper function for makeDoubleMoves:
-		// gets the destination after making each single moves
-		public static Integer getDestination(Move m) {
-			return m.accept(new Move.Visitor<>() {
-
-				@Override
-				public Integer visit(Move.SingleMove move) {
-					return move.destination;
-				}
-
-				@Override
-				public Integer visit(Move.DoubleMove move) {
-					return move.destination2;
-				}
-			});
+		@Override
+		public long zobristKey() {
+			return key;
 		}
 
-		private static Set<Move.SingleMove> makeSingleMoves(GameSetup setup, List<Player> detectives, Player player, int source){
-
-			// create an empty collection of some sort, say, HashSet, to store all the SingleMove we generate
-			Set<Integer> playerLocation = new HashSet<>();
-			Set<Move.SingleMove> singleMove = new HashSet<>();
-
-			// add player's location into the set
-			for(Player detective: detectives) playerLocation.add(detective.location());
-
-			for(int destination : setup.graph.adjacentNodes(source)) {
-				// find out if destination is occupied by a detective
-				//  if the location is occupied, don't add to the collection of moves to return
-				if (playerLocation.contains(destination)) continue;
-
-				for(ScotlandYard.Transport t : setup.graph.edgeValueOrDefault(source, destination, ImmutableSet.of()) ) {
-					// find out if the player has the required tickets
-					//  if it does, construct a SingleMove and add it the collection of moves to return
-					if(player.has(t.requiredTicket())) {
-						Move.SingleMove move = new Move.SingleMove(player.piece(), source, t.requiredTicket(), destination);
-						singleMove.add(move);
-					}
-				}
+		/* --------------- HELPER FUNCTIONS   ----------- */
 
-				// consider the rules of secret moves here
-				// add moves to the destination via a secret ticket if there are any left with the player
-				if(player.has(ScotlandYard.Ticket.SECRET)) {
-					Move.SingleMove secret = new Move.SingleMove(player.piece(), source, ScotlandYard.Ticket.SECRET, destination);
-					singleMove.add(secret);
-				}
+		// whether the move is one of getAvailableMoves(), worked out from the move itself: it
+		// must be the mover's turn in a game that is not over, along edges that take the tickets
+		// used, onto free nodes
+		private boolean isAvailable(Move move) {
+			if (!winner.get().isEmpty()) return false;
+			MoveGenerator generator = setup.moveGenerator();
+			long[] occupied = generator.occupancy(detectives);
+
+			if (!(move instanceof Move.SingleMove || move instanceof Move.DoubleMove)) return false;
+			Piece piece = move.commencedBy();
+			Player player = getCurrentPlayer(piece);
+			if (player == null || !remaining.contains(piece) || player.location() != move.source())
+				return false;
+
+			if (move instanceof Move.SingleMove) {
+				Move.SingleMove single = (Move.SingleMove) move;
+				return player.has(single.ticket)
+						&& generator.reaches(single.ticket, single.source(), single.destination)
+						&& !MoveGenerator.isOccupied(single.destination, occupied);
 			}
-			// return the collection of moves
-			return singleMove;
+			Move.DoubleMove doubleMove = (Move.DoubleMove) move;
+			int left = player.count(doubleMove.ticket2) - (doubleMove.ticket1 == doubleMove.ticket2 ? 1 : 0);
+			return player.isMrX()
+					&& setup.moves.size() - log.size() >= 2
+					&& player.has(ScotlandYard.Ticket.DOUBLE)
+					&& player.has(doubleMove.ticket1) && left > 0
+					&& generator.reaches(doubleMove.ticket1, doubleMove.source(), doubleMove.destination1)
+					&& !MoveGenerator.isOccupied(doubleMove.destination1, occupied)
+					&& generator.reaches(doubleMove.ticket2, doubleMove.destination1, doubleMove.destination2)
+					&& !MoveGenerator.isOccupied(doubleMove.destination2, occupied);
 		}
 
-		private static Set<Move.DoubleMove> makeDoubleMoves(GameSetup setup, List<Player> detectives, Player player, int source, ImmutableList<LogEntry> log){
-
-			// create an empty collection of some sort, say, HashSet, to store all the DoubleMove we generate
-			Set<Move.DoubleMove> doubleMove = new HashSet<>();
-			Set<Move.SingleMove> singleMove = makeSingleMoves(setup, detectives, player, source);
-
-			// integer to store available moves
-			int availableMoves = setup.moves.size() - log.size();
+		// helper function for advance
+		// gets the player from its piece (detective/ Mr X) --> piece to player
+		private Player getCurrentPlayer(Piece piece){
+			if (!(piece instanceof Piece.Detective) && piece != Piece.MrX.MRX) return null;
+			return byIndex[ScotlandYard.pieceIndex(piece)];
+		}
 
-			// check if available moves >= 2 and if player has double tix
-			if (player.has(ScotlandYard.Ticket.DOUBLE) && (availableMoves >= 2)){
-				for(Move.SingleMove move1: singleMove) {
-					// player used a tix -> ticket value - 1
-					int destination1 = getDestination(move1);
-					Player tempPlayer =  player.use(move1.ticket).at(destination1);
-					Set<Move.SingleMove> secondMove = makeSingleMoves(setup, detectives, tempPlayer, destination1);
+		// whether the player can make any single move, leaving out the locations that are
+		// occupied by detectives; stops at the first move found
+		private static boolean hasSingleMove(GameSetup setup, long[] occupied, Player player){
+			return setup.moveGenerator().hasSingleMove(player, player.location(), occupied);
+		}
 
-					// player making the second move
-					for(Move.SingleMove move2: secondMove) {
-						int destination2 = getDestination(move2);
-						Move.DoubleMove double1 = new Move.DoubleMove(player.piece(), source, move1.ticket, destination1, move2.ticket, destination2);
-						doubleMove.add(double1);
-					}
-				}
-			}
-//			// if player does not have enough ticket
-//			if()
-			// return the collection of moves
-			return doubleMove;
+		// whether the player has any double move; stops at the first move found
+		private static boolean hasDoubleMove(GameSetup setup, long[] occupied, Player player, int logSize){
+			if (setup.moves.size() - logSize < 2) return false;
+			return setup.moveGenerator().hasDoubleMove(player.location(),
+					MoveGenerator.ticketCounts(player), occupied);
 		}
 	}
 }
@@ -0,0 +1,284 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * A whole game position packed into {@link #WORDS} longs (one 64 byte cache line), so that
+ * millions of positions can be kept in a plain {@code long[]} with {@link #writeTo(long[], int)}
+ * and {@link #readFrom(long[], int)}. The layout, from the least significant bit of the first
+ * word, is:
+ * <pre>
+ * bits   0-5    pieces in the game, as bits of {@link ScotlandYard#pieceIndex(Piece)}
+ * bits   6-11   pieces still to move in the round
+ * bits  12-17   length of MrX's travel log
+ * bits  18-71   location of each piece, 9 bits each
+ * bits  72-251  count of each ticket of each piece, 6 bits each
+ * bits 252-347  travel log entries, 2 bits of ticket and a reveal bit each
+ * bits 348-473  locations of the revealed travel log entries in order, 9 bits each
+ * bits 474-503  tickets in the ticket map of each piece, 5 bits each
+ * </pre>
+ * A travel log never holds {@link Ticket#DOUBLE}, so log entries only tell the other four
+ * tickets apart. The ticket maps are kept as {@link Player#give(Ticket)} only hands a player
+ * the tickets in its map.
+ * The game setup is not part of a packed position; supply it to {@link #toGameState(GameSetup)}.
+ * Positions outside of the limits ({@link #MAX_NODE}, {@link #MAX_TICKETS},
+ * {@link #MAX_LOG}, {@link #MAX_REVEALS}) cannot be packed.
+ */
+public final class PackedGameState {
+
+	/**
+	 * The number of longs in a packed position
+	 */
+	public static final int WORDS = 8;
+	/**
+	 * The largest node a packed position can refer to
+	 */
+	public static final int MAX_NODE = (1 << 9) - 1;
+	/**
+	 * The largest number of a ticket a piece can hold in a packed position
+	 */
+	public static final int MAX_TICKETS = (1 << 6) - 1;
+	/**
+	 * The largest number of travel log entries in a packed position
+	 */
+	public static final int MAX_LOG = 32;
+	/**
+	 * The largest number of revealed travel log entries in a packed position
+	 */
+	public static final int MAX_REVEALS = 14;
+
+	private static final Ticket[] TICKETS = Ticket.values();
+	private static final Ticket[] LOG_TICKETS =
+			{Ticket.TAXI, Ticket.BUS, Ticket.UNDERGROUND, Ticket.SECRET};
+	private static final Piece[] PIECES = ScotlandYard.ALL_PIECES.toArray(new Piece[0]);
+
+	private static final int PRESENT = 0;
+	private static final int REMAINING = 6;
+	private static final int LOG_SIZE = 12;
+	private static final int LOCATIONS = 18;
+	private static final int NODE_BITS = 9;
+	private static final int TICKET_COUNTS = LOCATIONS + PIECES.length * NODE_BITS;
+	private static final int TICKET_BITS = 6;
+	private static final int LOG = TICKET_COUNTS + PIECES.length * TICKETS.length * TICKET_BITS;
+	private static final int ENTRY_BITS = 3;
+	private static final int REVEALS = LOG + MAX_LOG * ENTRY_BITS;
+	private static final int TICKET_MAPS = REVEALS + MAX_REVEALS * NODE_BITS;
+
+	private final long[] words;
+
+	private PackedGameState(long[] words) { this.words = words; }
+
+	/**
+	 * @param board the board, its MrX location must be known as described in
+	 * {@link MutableGameState#of(Board)}
+	 * @return the packed position of the board
+	 */
+	@Nonnull public static PackedGameState of(@Nonnull Board board) {
+		return of(board, MyGameStateFactory.mrXLocationOf(board).orElseThrow(() ->
+				new IllegalArgumentException("MrX's location is not known to the board")));
+	}
+
+	/**
+	 * @param board the board
+	 * @param mrXLocation where MrX is
+	 * @return the packed position of the board
+	 */
+	@Nonnull public static PackedGameState of(@Nonnull Board board, int mrXLocation) {
+		long[] words = new long[WORDS];
+		for (Piece piece : board.getPlayers()) {
+			int index = ScotlandYard.pieceIndex(piece);
+			put(words, PRESENT + index, 1, 1);
+			int location = piece.isMrX() ? mrXLocation : board.locationOf(piece);
+			put(words, LOCATIONS + index * NODE_BITS, NODE_BITS, checkNode(location));
+			for (Ticket ticket : TICKETS) {
+				int count = board.ticketCount(piece, ticket);
+				if (count < 0 || count > MAX_TICKETS)
+					throw new IllegalArgumentException(count + " " + ticket + " cannot be packed");
+				put(words, ticketOffset(index, ticket), TICKET_BITS, count);
+			}
+			put(words, TICKET_MAPS + index * TICKETS.length, TICKETS.length,
+					MyGameStateFactory.ticketMaskOf(board, piece));
+		}
+		for (Piece piece : MyGameStateFactory.remainingOf(board))
+			put(words, REMAINING + ScotlandYard.pieceIndex(piece), 1, 1);
+
+		var log = board.getMrXTravelLog();
+		if (log.size() > MAX_LOG)
+			throw new IllegalArgumentException("Travel log of " + log.size() + " cannot be packed");
+		put(words, LOG_SIZE, 6, log.size());
+		int reveals = 0;
+		for (int i = 0; i < log.size(); i++) {
+			LogEntry entry = log.get(i);
+			boolean revealed = entry.isRevealed();
+			put(words, LOG + i * ENTRY_BITS, ENTRY_BITS,
+					logTicketIndex(entry.ticket()) | (revealed ? 1 << 2 : 0));
+			if (!revealed) continue;
+			if (reveals == MAX_REVEALS)
+				throw new IllegalArgumentException("More than " + MAX_REVEALS + " reveals");
+			put(words, REVEALS + reveals++ * NODE_BITS, NODE_BITS,
+					checkNode(entry.locationOrMinusOne()));
+		}
+		return new PackedGameState(words);
+	}
+
+	/**
+	 * @param array the array holding packed positions
+	 * @param offset where the position starts in the array
+	 * @return the position
+	 */
+	@Nonnull public static PackedGameState readFrom(@Nonnull long[] array, int offset) {
+		return new PackedGameState(Arrays.copyOfRange(array, offset, offset + WORDS));
+	}
+
+	/**
+	 * @param array the array to write to, it needs {@link #WORDS} longs from the offset
+	 * @param offset where to write the position in the array
+	 */
+	public void writeTo(@Nonnull long[] array, int offset) {
+		System.arraycopy(words, 0, array, offset, WORDS);
+	}
+
+	/**
+	 * @param piece the piece
+	 * @return whether the piece is part of the game
+	 */
+	public boolean contains(@Nonnull Piece piece) {
+		return get(words, PRESENT + ScotlandYard.pieceIndex(piece), 1) != 0;
+	}
+
+	/**
+	 * @param piece the piece
+	 * @return whether the piece still has to move in this round
+	 */
+	public boolean isRemaining(@Nonnull Piece piece) {
+		return get(words, REMAINING + ScotlandYard.pieceIndex(piece), 1) != 0;
+	}
+
+	/**
+	 * @param piece the piece
+	 * @return where the piece is, including MrX; -1 if the piece is not part of the game
+	 */
+	public int locationOf(@Nonnull Piece piece) {
+		if (!contains(piece)) return -1;
+		return (int) get(words, LOCATIONS + ScotlandYard.pieceIndex(piece) * NODE_BITS, NODE_BITS);
+	}
+
+	/**
+	 * @param piece the piece
+	 * @param ticket the ticket
+	 * @return how many of the ticket the piece holds; 0 if the piece is not part of the game
+	 */
+	public int ticketCount(@Nonnull Piece piece, @Nonnull Ticket ticket) {
+		return (int) get(words, ticketOffset(ScotlandYard.pieceIndex(piece), ticket), TICKET_BITS);
+	}
+
+	/**
+	 * @param piece the piece
+	 * @param ticket the ticket
+	 * @return whether the ticket is in the piece's ticket map, so the piece can be given it
+	 */
+	public boolean inTicketMap(@Nonnull Piece piece, @Nonnull Ticket ticket) {
+		return get(words, TICKET_MAPS + ScotlandYard.pieceIndex(piece) * TICKETS.length
+				+ ticket.ordinal(), 1) != 0;
+	}
+
+	/**
+	 * @return the number of entries in MrX's travel log
+	 */
+	public int logSize() { return (int) get(words, LOG_SIZE, 6); }
+
+	/**
+	 * @return MrX's travel log
+	 */
+	@Nonnull public ImmutableList<LogEntry> travelLog() {
+		var log = ImmutableList.<LogEntry>builder();
+		int reveals = 0;
+		for (int i = 0; i < logSize(); i++) {
+			int entry = (int) get(words, LOG + i * ENTRY_BITS, ENTRY_BITS);
+			Ticket ticket = LOG_TICKETS[entry & 0b11];
+			if ((entry & 1 << 2) == 0) log.add(LogEntry.hidden(ticket));
+			else log.add(LogEntry.reveal(ticket,
+					(int) get(words, REVEALS + reveals++ * NODE_BITS, NODE_BITS)));
+		}
+		return log.build();
+	}
+
+	/**
+	 * @param setup the setup of the game the position was taken from
+	 * @return the position as a game state
+	 */
+	@Nonnull public GameState toGameState(@Nonnull GameSetup setup) {
+		Player mrX = null;
+		var detectives = ImmutableList.<Player>builder();
+		var remaining = ImmutableSet.<Piece>builder();
+		for (Piece piece : PIECES) {
+			if (!contains(piece)) continue;
+			if (isRemaining(piece)) remaining.add(piece);
+			var tickets = ImmutableMap.<Ticket, Integer>builder();
+			for (Ticket ticket : TICKETS)
+				if (inTicketMap(piece, ticket)) tickets.put(ticket, ticketCount(piece, ticket));
+			var player = new Player(piece, tickets.build(), locationOf(piece));
+			if (piece.isMrX()) mrX = player;
+			else detectives.add(player);
+		}
+		return new MyGameStateFactory().resume(setup, remaining.build(), travelLog(), mrX,
+				detectives.build());
+	}
+
+	/**
+	 * @param setup the setup of the game the position was taken from
+	 * @return the position as an immutable board
+	 */
+	@Nonnull public ImmutableBoard toImmutableBoard(@Nonnull GameSetup setup) {
+		return new ImmutableBoard(toGameState(setup));
+	}
+
+	@Override public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		return Arrays.equals(words, ((PackedGameState) o).words);
+	}
+	@Override public int hashCode() { return Arrays.hashCode(words); }
+
+	private static int ticketOffset(int piece, Ticket ticket) {
+		return TICKET_COUNTS + (piece * TICKETS.length + ticket.ordinal()) * TICKET_BITS;
+	}
+
+	private static int logTicketIndex(Ticket ticket) {
+		for (int i = 0; i < LOG_TICKETS.length; i++) if (LOG_TICKETS[i] == ticket) return i;
+		throw new IllegalArgumentException(ticket + " in the travel log cannot be packed");
+	}
+
+	private static int checkNode(int node) {
+		if (node < 0 || node > MAX_NODE)
+			throw new IllegalArgumentException("Node " + node + " cannot be packed");
+		return node;
+	}
+
+	// fields are at most 9 bits wide but may straddle two words
+	private static long get(long[] words, int offset, int width) {
+		int word = offset >>> 6, shift = offset & 63;
+		long value = words[word] >>> shift;
+		if (shift + width > 64) value |= words[word + 1] << (64 - shift);
+		return value & ((1L << width) - 1);
+	}
+
+	private static void put(long[] words, int offset, int width, long value) {
+		int word = offset >>> 6, shift = offset & 63;
+		long mask = (1L << width) - 1;
+		words[word] = words[word] & ~(mask << shift) | (value & mask) << shift;
+		if (shift + width > 64) {
+			int spilled = 64 - shift;
+			words[word + 1] = words[word + 1] & ~(mask >>> spilled) | (value & mask) >>> spilled;
+		}
+	}
+}
@@ -2,7 +2,7 @@ package uk.ac.bris.cs.scotlandyard.model;
 
 import com.google.common.collect.ImmutableMap;
 
-import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
 
 import javax.annotation.Nonnull;
@@ -12,17 +12,53 @@ import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
 /**
  * A POJO representing an immutable player of the ScotlandYard game.
  * Each player contains the {@link Piece} (coloured counter), {@link Ticket}s, and the location.
+ * <br>
+ * Tickets are held as one {@value #COUNT_BITS} bit counter per ticket packed into a
+ * {@code long}, together with a mask of the tickets that are part of the player's ticket map,
+ * so {@link #use(Ticket)} and {@link #give(Ticket)} allocate nothing but the new player. The
+ * {@link #tickets()} map is built on first use.
  */
 public final class Player {
+	/**
+	 * The number of bits of each ticket counter
+	 */
+	public static final int COUNT_BITS = 12;
+	/**
+	 * The largest number of a single ticket a player can hold
+	 */
+	public static final int MAX_COUNT = (1 << COUNT_BITS) - 1;
+
+	private static final Ticket[] TICKETS = Ticket.values();
+
 	private final Piece piece;
-	private final ImmutableMap<Ticket, Integer> tickets;
+	private final long counts;
+	private final int present;
 	private final int location;
+	private ImmutableMap<Ticket, Integer> tickets;
 
 	public Player(@Nonnull Piece piece,
 	              @Nonnull ImmutableMap<Ticket, Integer> tickets,
 	              int location) {
 		this.piece = Objects.requireNonNull(piece);
-		this.tickets = Objects.requireNonNull(tickets);
+		long counts = 0;
+		int present = 0;
+		for (Map.Entry<Ticket, Integer> entry : tickets.entrySet()) {
+			int count = entry.getValue();
+			if (count < 0 || count > MAX_COUNT)
+				throw new IllegalArgumentException(
+						"Ticket count " + count + " of " + entry.getKey() + " out of range");
+			counts |= (long) count << shift(entry.getKey());
+			present |= 1 << entry.getKey().ordinal();
+		}
+		this.counts = counts;
+		this.present = present;
+		this.location = location;
+		this.tickets = tickets;
+	}
+	private Player(Piece piece, long counts, int present, int location) {
+		this.piece = piece;
+		this.counts = counts;
+		this.present = present;
 		this.location = location;
 	}
 	/**
@@ -40,7 +76,24 @@ public final class Player {
 	/**
 	 * @return the ticket
 	 */
-	@Nonnull public ImmutableMap<Ticket, Integer> tickets() { return tickets; }
+	@Nonnull public ImmutableMap<Ticket, Integer> tickets() {
+		// built on first use without locking, every thread builds an equal map
+		var map = tickets;
+		if (map == null) {
+			var builder = ImmutableMap.<Ticket, Integer>builder();
+			for (Ticket ticket : TICKETS)
+				if ((present & 1 << ticket.ordinal()) != 0) builder.put(ticket, count(ticket));
+			tickets = map = builder.build();
+		}
+		return map;
+	}
+	/**
+	 * @param ticket the ticket
+	 * @return how many of the given ticket the player has; 0 if the player has none
+	 */
+	public int count(@Nonnull Ticket ticket) {
+		return (int) (counts >>> shift(ticket) & MAX_COUNT);
+	}
 	/**
 	 * @return the location
 	 */
@@ -49,17 +102,13 @@ public final class Player {
 	 * @param ticket the ticket
 	 * @return whether the player has the given ticket
 	 */
-	public boolean has(@Nonnull Ticket ticket) {
-		return tickets.getOrDefault(Objects.requireNonNull(ticket), 0) != 0;
-	}
+	public boolean has(@Nonnull Ticket ticket) { return count(ticket) != 0; }
 	/**
 	 * @param ticket the ticket
 	 * @param count the required count
 	 * @return whether the player has &gt;= the required numbers of the given ticket
 	 */
-	public boolean hasAtLeast(@Nonnull Ticket ticket, int count) {
-		return tickets.getOrDefault(Objects.requireNonNull(ticket), 0) >= count;
-	}
+	public boolean hasAtLeast(@Nonnull Ticket ticket, int count) { return count(ticket) >= count; }
 	/**
 	 * See {@link #give(Ticket)}
 	 *
@@ -72,13 +121,17 @@ public final class Player {
 		return x;
 	}
 	/**
+	 * Tickets that are not part of the player's ticket map are not given.
+	 *
 	 * @param ticket the ticket
 	 * @return a new player with one more of the given ticket
 	 */
 	@Nonnull public Player give(@Nonnull Ticket ticket) {
-		var map = new HashMap<>(tickets);
-		map.computeIfPresent(ticket, (t, n) -> n + 1);
-		return new Player(piece, ImmutableMap.copyOf(map), location);
+		if ((present & 1 << ticket.ordinal()) == 0)
+			return new Player(piece, counts, present, location);
+		if (count(ticket) == MAX_COUNT)
+			throw new IllegalArgumentException("Too many " + ticket);
+		return new Player(piece, counts + (1L << shift(ticket)), present, location);
 	}
 	/**
 	 * See {@link #use(Ticket)}
@@ -98,22 +151,26 @@ public final class Player {
 	@Nonnull public Player use(@Nonnull Ticket ticket) {
 		if (!has(ticket))
 			throw new IllegalArgumentException("No " + ticket + " remaining");
-		var map = new HashMap<>(tickets);
-		map.computeIfPresent(ticket, (t, n) -> n - 1);
-		return new Player(piece, ImmutableMap.copyOf(map), location);
+		return new Player(piece, counts - (1L << shift(ticket)), present, location);
 	}
 	/**
 	 * @param newLocation the location
 	 * @return a new player at the given location
 	 */
-	@Nonnull public Player at(int newLocation) { return new Player(piece, tickets, newLocation); }
+	@Nonnull public Player at(int newLocation) {
+		return new Player(piece, counts, present, newLocation);
+	}
 	@Override public boolean equals(Object o) {
 		if (this == o) return true;
 		if (o == null || getClass() != o.getClass()) return false;
 		Player that = (Player) o;
 		return location == that.location && piece == that.piece &&
-				Objects.equals(tickets, that.tickets);
+				counts == that.counts && present == that.present;
 	}
-	@Override public int hashCode() { return Objects.hash(piece, tickets, location); }
-	@Override public String toString() { return piece + "@" + location + "(" + tickets + ")"; }
+	@Override public int hashCode() {
+		return ((piece.hashCode() * 31 + Long.hashCode(counts)) * 31 + present) * 31 + location;
+	}
+	@Override public String toString() { return piece + "@" + location + "(" + tickets() + ")"; }
+
+	private static int shift(Ticket ticket) { return ticket.ordinal() * COUNT_BITS; }
 }
@@ -0,0 +1,138 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.TicketBoard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * The nodes a player can get to within a number of moves with the tickets they actually hold,
+ * which is less than the hop distances of {@link DistanceTable} once a kind of ticket runs low.
+ * Every move spends one {@link Ticket#TAXI}, {@link Ticket#BUS}, {@link Ticket#UNDERGROUND} or
+ * {@link Ticket#SECRET}; {@link Ticket#DOUBLE} tickets and the other pieces on the board are left
+ * out.
+ * <br>
+ * Answers come from a breadth first search over (node, tickets left) that drops any state with
+ * no more tickets of every kind than one already seen at its node. They are memoised by source,
+ * number of moves and ticket counts, where counts above the number of moves are all the same.
+ * <br>
+ * Instances are thread safe and are normally obtained through
+ * {@link GameSetup#reachabilityTable()}.
+ */
+public final class ReachabilityTable {
+
+	/**
+	 * The most moves that can be asked for
+	 */
+	public static final int MAX_MOVES = (1 << 6) - 1;
+
+	private static final Ticket[] MOVE_TICKETS =
+			{Ticket.TAXI, Ticket.BUS, Ticket.UNDERGROUND, Ticket.SECRET};
+	private static final int COUNT_BITS = 6;
+	private static final int COUNT_MASK = (1 << COUNT_BITS) - 1;
+
+	private final CompactGraph graph;
+	private final int[] ticketMasks = new int[MOVE_TICKETS.length];
+	private final Map<Long, BitSet> memo = new ConcurrentHashMap<>();
+
+	/**
+	 * @param graph the game graph
+	 */
+	public ReachabilityTable(@Nonnull CompactGraph graph) {
+		this.graph = graph;
+		for (int t = 0; t < MOVE_TICKETS.length; t++) ticketMasks[t] = CompactGraph.mask(MOVE_TICKETS[t]);
+	}
+
+	/**
+	 * @param player the player, from their location with their tickets
+	 * @param moves the most moves to make, from 0 to {@link #MAX_MOVES}
+	 * @return the nodes the player can reach, as bits of the stations; a new set
+	 */
+	@Nonnull public BitSet reachable(@Nonnull Player player, int moves) {
+		return reachable(player.location(), player::count, moves);
+	}
+
+	/**
+	 * @param source the node to start at
+	 * @param tickets the tickets held at the start
+	 * @param moves the most moves to make, from 0 to {@link #MAX_MOVES}
+	 * @return the nodes that can be reached, the source included, as bits of the stations; a
+	 * new set
+	 */
+	@Nonnull public BitSet reachable(int source, @Nonnull TicketBoard tickets, int moves) {
+		int index = graph.indexOf(source);
+		if (index < 0)
+			throw new IllegalArgumentException("Node " + source + " is not an element of this graph");
+		if (moves < 0 || moves > MAX_MOVES)
+			throw new IllegalArgumentException("Moves must be between 0 and " + MAX_MOVES + ": " + moves);
+		int vector = 0;
+		for (int t = 0; t < MOVE_TICKETS.length; t++) {
+			int count = tickets.getCount(MOVE_TICKETS[t]);
+			if (count < 0) throw new IllegalArgumentException("Negative " + MOVE_TICKETS[t] + " count");
+			vector |= Math.min(count, moves) << t * COUNT_BITS;
+		}
+		long key = (long) index << 32 | (long) moves << 24 | vector;
+		// the counts are the low bits of the key
+		return (BitSet) memo.computeIfAbsent(key, k -> search(index, (int) (k & 0xFFFFFF), moves))
+				.clone();
+	}
+
+	private BitSet search(int source, int vector, int moves) {
+		// seen[i] holds the ticket vectors found at node i that no other found one dominates
+		int[][] seen = new int[graph.nodeCount()][];
+		int[] size = new int[graph.nodeCount()];
+		// pairs of node and tickets left, of the states first found with this many moves
+		int[] frontier = {source, vector}, next = new int[16];
+		int frontierSize = 1;
+		add(seen, size, source, vector);
+		for (int move = 0; move < moves && frontierSize > 0; move++) {
+			int nextSize = 0;
+			for (int f = 0; f < frontierSize; f++) {
+				int node = frontier[2 * f], left = frontier[2 * f + 1];
+				for (int edge = graph.start(node); edge < graph.start(node + 1); edge++) {
+					int neighbour = graph.neighbour(edge), transports = graph.transports(edge);
+					for (int t = 0; t < MOVE_TICKETS.length; t++) {
+						int shift = t * COUNT_BITS;
+						if ((left >>> shift & COUNT_MASK) == 0 || (transports & ticketMasks[t]) == 0)
+							continue;
+						int after = left - (1 << shift);
+						if (!add(seen, size, neighbour, after)) continue;
+						if (2 * nextSize + 2 > next.length) next = Arrays.copyOf(next, next.length * 2);
+						next[2 * nextSize] = neighbour;
+						next[2 * nextSize + 1] = after;
+						nextSize++;
+					}
+				}
+			}
+			int[] swap = frontier;
+			frontier = next;
+			next = swap;
+			frontierSize = nextSize;
+		}
+		var reachable = new BitSet(graph.maxNode() + 1);
+		for (int i = 0; i < seen.length; i++) if (size[i] > 0) reachable.set(graph.node(i));
+		return reachable;
+	}
+
+	// adds the vector to the node unless a vector already there has at least as many tickets of
+	// every kind, states found later never need fewer moves
+	private static boolean add(int[][] seen, int[] size, int node, int vector) {
+		int[] vectors = seen[node];
+		for (int i = 0; i < size[node]; i++) if (dominates(vectors[i], vector)) return false;
+		if (vectors == null) seen[node] = vectors = new int[4];
+		else if (size[node] == vectors.length) seen[node] = vectors = Arrays.copyOf(vectors, size[node] * 2);
+		vectors[size[node]++] = vector;
+		return true;
+	}
+
+	private static boolean dominates(int a, int b) {
+		for (int shift = 0; shift < MOVE_TICKETS.length * COUNT_BITS; shift += COUNT_BITS)
+			if ((a >>> shift & COUNT_MASK) < (b >>> shift & COUNT_MASK)) return false;
+		return true;
+	}
+}
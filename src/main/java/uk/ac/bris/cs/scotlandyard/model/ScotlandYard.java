@@ -13,6 +13,9 @@ import com.google.common.io.Resources;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.Comparator;
@@ -23,7 +26,6 @@ import java.util.Map.Entry;
 import java.util.Random;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
-import java.util.stream.Stream;
 
 import javax.annotation.Nonnull;
 
@@ -62,6 +64,16 @@ public final class ScotlandYard {
 	public static final Comparator<Piece> PIECE_VALUE_ORDER =
 			Comparator.comparingInt(ALL_PIECES::indexOf);
 
+	/**
+	 * @param piece the game piece
+	 * @return the index of the piece in {@link #ALL_PIECES}, without searching the list
+	 */
+	public static int pieceIndex(@Nonnull Piece piece) {
+		if (piece instanceof Detective) return ((Detective) piece).ordinal() + 1;
+		if (piece == MrX.MRX) return 0;
+		throw new IllegalArgumentException("Unknown piece " + piece);
+	}
+
 	/**
 	 * Reveal moves for a 24 move game
 	 */
@@ -161,25 +173,48 @@ public final class ScotlandYard {
 
 	@Nonnull public static ImmutableMap<Integer, Entry<Integer, Integer>>
 	pngMapPositionEntries() throws IOException {
-		List<String> lines = Resources.readLines(Resources.getResource("pos.txt"),
-				StandardCharsets.UTF_8);
 		var builder = ImmutableMap.<Integer, Entry<Integer, Integer>>builder();
-		for (String line : lines) {
-			Integer[] values = Stream.of(line.split("\\s+")).map(Integer::parseInt)
-					.toArray(Integer[]::new);
-			if (values.length != 3) continue;
-			builder.put(values[0],
+		for (var position : StandardMap.get().map.positions().entrySet()) {
+			builder.put(position.getKey(),
 					new SimpleImmutableEntry<>(
-							Math.round((values[1] + MAP_OFFSET) * MAP_SCALE),
-							Math.round((values[2] + MAP_OFFSET) * MAP_SCALE)));
+							Math.round((position.getValue().getKey() + MAP_OFFSET) * MAP_SCALE),
+							Math.round((position.getValue().getValue() + MAP_OFFSET) * MAP_SCALE)));
 		}
 		return builder.build();
 	}
 
 	@Nonnull public static ImmutableValueGraph<Integer, ImmutableSet<Transport>>
 	standardGraph() throws IOException {
-		return readGraph(Resources.toString(
-				Resources.getResource("graph.txt"), StandardCharsets.UTF_8));
+		return StandardMap.get().graph;
+	}
+
+	/**
+	 * @return the standard map, loaded once from {@code map.bin}; the same data as
+	 * {@code graph.txt} and {@code pos.txt}, see {@link MapFile}
+	 * @throws IOException if the map cannot be read
+	 */
+	@Nonnull public static MapFile standardMap() throws IOException {
+		return StandardMap.get().map;
+	}
+
+	// the standard map is immutable, so it is read once and shared
+	private static final class StandardMap {
+		private static volatile StandardMap instance;
+		private final MapFile map;
+		private final ImmutableValueGraph<Integer, ImmutableSet<Transport>> graph;
+
+		private StandardMap(MapFile map) {
+			this.map = map;
+			this.graph = map.graph().toValueGraph();
+		}
+
+		// threads racing on the first call may each read the map, the last one read is kept
+		private static StandardMap get() throws IOException {
+			var standard = instance;
+			if (standard == null) instance = standard = new StandardMap(MapFile.read(
+					ByteBuffer.wrap(Resources.toByteArray(Resources.getResource("map.bin")))));
+			return standard;
+		}
 	}
 
 	@Nonnull public static ImmutableValueGraph<Integer, ImmutableSet<Transport>>
@@ -219,6 +254,32 @@ public final class ScotlandYard {
 		return ImmutableValueGraph.copyOf(graph);
 	}
 
+	/**
+	 * Reads a graph in the same format as {@link #readGraph(String)} a buffer at a time, straight
+	 * into the compact form the engine uses, so that maps far larger than the standard one never
+	 * have to be held as text. Play on it with
+	 * {@link GameSetup#GameSetup(CompactGraph, ImmutableList)}, which keeps it as the graph the
+	 * engine plays on.
+	 *
+	 * @param reader the text of the graph, it is not closed
+	 * @return the graph
+	 * @throws IOException if the reader fails
+	 */
+	@Nonnull public static CompactGraph readCompactGraph(@Nonnull Reader reader) throws IOException {
+		return GraphReader.read(reader);
+	}
+
+	/**
+	 * Same as {@link #readCompactGraph(Reader)} for UTF-8 text.
+	 *
+	 * @param stream the text of the graph, it is not closed
+	 * @return the graph
+	 * @throws IOException if the stream fails
+	 */
+	@Nonnull public static CompactGraph readCompactGraph(@Nonnull InputStream stream) throws IOException {
+		return readCompactGraph(new InputStreamReader(stream, StandardCharsets.UTF_8));
+	}
+
 
 	/**
 	 * Represents tickets in the ScotlandYard game
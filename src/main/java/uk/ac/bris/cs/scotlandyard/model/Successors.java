@@ -0,0 +1,69 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+
+/**
+ * Advances one game state by many moves, splitting large fan-outs over the common fork/join
+ * pool. This relies on game states being safe to share between threads, see {@link GameState}.
+ */
+final class Successors {
+
+	private Successors() {}
+
+	/**
+	 * @param moves the moves, all of them available
+	 * @param advance makes the state after a move
+	 * @param parallelThreshold fan-outs smaller than this are expanded on the calling thread,
+	 * larger ones are split into halves until they are smaller
+	 * @return the moves mapped to their successors, in the order of the moves
+	 */
+	static ImmutableMap<Move, GameState> expand(List<Move> moves,
+	                                            Function<Move, GameState> advance,
+	                                            int parallelThreshold) {
+		if (parallelThreshold < 1)
+			throw new IllegalArgumentException("Threshold must be positive: " + parallelThreshold);
+		GameState[] successors = new GameState[moves.size()];
+		var task = new ExpandTask(moves, advance, successors, 0, moves.size(), parallelThreshold);
+		if (moves.size() < parallelThreshold) task.compute();
+		else ForkJoinPool.commonPool().invoke(task);
+		var builder = ImmutableMap.<Move, GameState>builderWithExpectedSize(moves.size());
+		for (int i = 0; i < successors.length; i++) builder.put(moves.get(i), successors[i]);
+		return builder.build();
+	}
+
+	private static final class ExpandTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final transient List<Move> moves;
+		private final transient Function<Move, GameState> advance;
+		private final transient GameState[] successors;
+		private final int from, to, threshold;
+
+		private ExpandTask(List<Move> moves, Function<Move, GameState> advance,
+		                   GameState[] successors, int from, int to, int threshold) {
+			this.moves = moves;
+			this.advance = advance;
+			this.successors = successors;
+			this.from = from;
+			this.to = to;
+			this.threshold = threshold;
+		}
+
+		@Override protected void compute() {
+			if (to - from < threshold || to - from == 1) {
+				for (int i = from; i < to; i++) successors[i] = advance.apply(moves.get(i));
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new ExpandTask(moves, advance, successors, from, middle, threshold),
+					new ExpandTask(moves, advance, successors, middle, to, threshold));
+		}
+	}
+}
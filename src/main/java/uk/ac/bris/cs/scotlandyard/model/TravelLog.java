@@ -0,0 +1,104 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+
+/**
+ * MrX's travel log as a persistent list: appending makes a new log that shares an array with the
+ * one it was made from, so every game state after a move shares the entries before it instead of
+ * copying them. A log reads its entries from the start of the array up to its size; the first log
+ * to append after an entry takes the next slot in place, any other log appending there copies its
+ * entries to an array of its own. States made by detective moves share the whole log.
+ * <br>
+ * The log is only copied out into an {@link ImmutableList} when {@link #asList()} is first
+ * called on it. Instances are immutable and thread safe.
+ */
+final class TravelLog {
+
+	// the entries of every log made from the first one to take the array, claimed in order
+	private static final class Entries {
+		private final LogEntry[] array;
+		private final AtomicInteger claimed;
+
+		private Entries(LogEntry[] array, int claimed) {
+			this.array = array;
+			this.claimed = new AtomicInteger(claimed);
+		}
+	}
+
+	// enough for the moves of a standard game before the array has to grow
+	private static final int CAPACITY = 24;
+
+	/**
+	 * The log before MrX's first move
+	 */
+	static final TravelLog EMPTY = new TravelLog(new Entries(new LogEntry[0], 0), 0,
+			ImmutableList.of());
+
+	private final Entries entries;
+	private final int size;
+	// copied out on the first asList(), racing threads copy out equal lists
+	private ImmutableList<LogEntry> list;
+
+	private TravelLog(Entries entries, int size, ImmutableList<LogEntry> list) {
+		this.entries = entries;
+		this.size = size;
+		this.list = list;
+	}
+
+	/**
+	 * @param entries the entries of the log, in order
+	 * @return the log of the entries; its list is the one given
+	 */
+	static TravelLog of(@Nonnull ImmutableList<LogEntry> entries) {
+		if (entries.isEmpty()) return EMPTY;
+		var array = Arrays.copyOf(entries.toArray(new LogEntry[0]), Math.max(CAPACITY, entries.size()));
+		return new TravelLog(new Entries(array, entries.size()), entries.size(), entries);
+	}
+
+	/**
+	 * @param entry the entry to add to the end
+	 * @return the log with the entry added, this log is left as it is
+	 */
+	TravelLog append(@Nonnull LogEntry entry) {
+		// the slot is written before the new log is published through its final field
+		if (size < entries.array.length && entries.claimed.compareAndSet(size, size + 1)) {
+			entries.array[size] = entry;
+			return new TravelLog(entries, size + 1, null);
+		}
+		// another log took the slot or the array is full
+		var array = new LogEntry[Math.max(CAPACITY, size * 2)];
+		System.arraycopy(entries.array, 0, array, 0, size);
+		array[size] = entry;
+		return new TravelLog(new Entries(array, size + 1), size + 1, null);
+	}
+
+	/**
+	 * @return the number of entries in the log
+	 */
+	int size() { return size; }
+
+	/**
+	 * @param index the index of the entry, from the first move
+	 * @return the entry
+	 */
+	@Nonnull LogEntry get(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index " + index + " of log of " + size);
+		return entries.array[index];
+	}
+
+	/**
+	 * @return the entries of the log, in order
+	 */
+	@Nonnull ImmutableList<LogEntry> asList() {
+		var list = this.list;
+		if (list == null)
+			this.list = list = ImmutableList.copyOf(Arrays.asList(entries.array).subList(0, size));
+		return list;
+	}
+}
@@ -0,0 +1,111 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * 64-bit Zobrist keys for ScotlandYard positions. A position is hashed as the XOR of one key per
+ * feature: the location of every piece (MrX included), the count of every ticket of every
+ * piece, the length of MrX's travel log and the set of pieces still to move in the round.
+ * <br>
+ * Because the hash is a XOR, a move updates it in constant time by XOR-ing out the keys of the
+ * features it changes and XOR-ing in the new ones; see
+ * {@link Board.GameState#zobristKey()} and {@link MutableGameState#zobristKey()}.
+ * <br>
+ * Instead of tables of random numbers, the key of each feature is the SplitMix64 mix of a unique
+ * index, so any node or ticket count has a key without sizing tables for a particular map.
+ */
+public final class Zobrist {
+
+	private Zobrist() {}
+
+	private static final long SEED = 0x5C07_1A2D_7A2D_1A2DL;
+	private static final long GOLDEN_GAMMA = 0x9E37_79B9_7F4A_7C15L;
+
+	private static final long LOCATION = 1L << 60;
+	private static final long TICKETS = 2L << 60;
+	private static final long LOG_SIZE = 3L << 60;
+	private static final long REMAINING = 4L << 60;
+
+	/**
+	 * @param piece the piece index, see {@link ScotlandYard#pieceIndex(Piece)}
+	 * @param node the location of the piece
+	 * @return the key of the piece being at the node
+	 */
+	public static long location(int piece, int node) {
+		return key(LOCATION | (long) piece << 32 | node & 0xFFFF_FFFFL);
+	}
+
+	/**
+	 * @param piece the piece index, see {@link ScotlandYard#pieceIndex(Piece)}
+	 * @param ticket the ticket
+	 * @param count how many of the ticket the piece holds
+	 * @return the key of the piece holding the given number of tickets
+	 */
+	public static long tickets(int piece, @Nonnull Ticket ticket, int count) {
+		return key(TICKETS | (long) piece << 40 | (long) ticket.ordinal() << 32 |
+				count & 0xFFFF_FFFFL);
+	}
+
+	/**
+	 * @param size the number of entries in MrX's travel log
+	 * @return the key of the travel log length
+	 */
+	public static long logSize(int size) { return key(LOG_SIZE | size & 0xFFFF_FFFFL); }
+
+	/**
+	 * @param pieces the pieces still to move, as bits of their piece index
+	 * @return the key of the pieces still to move
+	 */
+	public static long remaining(int pieces) { return key(REMAINING | pieces & 0xFFFF_FFFFL); }
+
+	/**
+	 * @param pieces the pieces still to move
+	 * @return the key of the pieces still to move
+	 */
+	public static long remaining(@Nonnull Iterable<Piece> pieces) {
+		int bits = 0;
+		for (Piece piece : pieces) bits |= 1 << ScotlandYard.pieceIndex(piece);
+		return remaining(bits);
+	}
+
+	/**
+	 * @param player the player
+	 * @return the combined key of the location and tickets of the player
+	 */
+	public static long player(@Nonnull Player player) {
+		int piece = ScotlandYard.pieceIndex(player.piece());
+		long key = location(piece, player.location());
+		for (Ticket ticket : Ticket.values())
+			key ^= tickets(piece, ticket, player.count(ticket));
+		return key;
+	}
+
+	/**
+	 * Hashes a board from scratch. Boards that do not give away MrX's location (see
+	 * {@link MutableGameState#of(Board)}) are hashed without it.
+	 *
+	 * @param board the board
+	 * @return the key of the position on the board
+	 */
+	public static long hash(@Nonnull Board board) {
+		long key = logSize(board.getMrXTravelLog().size());
+		for (Piece piece : board.getPlayers()) {
+			int index = ScotlandYard.pieceIndex(piece);
+			for (Ticket ticket : Ticket.values())
+				key ^= tickets(index, ticket, board.ticketCount(piece, ticket));
+			if (piece.isDetective()) key ^= location(index, board.locationOf(piece));
+		}
+		var mrX = MyGameStateFactory.mrXLocationOf(board);
+		if (mrX.isPresent()) key ^= location(0, mrX.getAsInt());
+		return key ^ remaining(MyGameStateFactory.remainingOf(board));
+	}
+
+	private static long key(long feature) {
+		long z = SEED + feature * GOLDEN_GAMMA;
+		z = (z ^ (z >>> 30)) * 0xBF58_476D_1CE4_E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D0_49BB_1331_11EBL;
+		return z ^ (z >>> 31);
+	}
+}
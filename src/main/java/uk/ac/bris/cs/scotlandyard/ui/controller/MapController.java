@@ -52,6 +52,7 @@ import uk.ac.bris.cs.scotlandyard.ResourceManager;
 import uk.ac.bris.cs.scotlandyard.ResourceManager.ImageResource;
 import uk.ac.bris.cs.scotlandyard.model.Ai;
 import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
 import uk.ac.bris.cs.scotlandyard.model.Model;
 import uk.ac.bris.cs.scotlandyard.model.Move;
 import uk.ac.bris.cs.scotlandyard.model.Move.DoubleMove;
@@ -250,43 +251,49 @@ class MapController implements Controller, GameControl {
 		});
 	}
 
-	Runnable requestHuman(ImmutableSet<Move> moves, Consumer<Move> moveCallback) {
+	Runnable requestHuman(Board board, Consumer<Move> moveCallback) {
 		clearMoveHints();
 		BiFunction<Integer, Integer, MoveHintController> mapping = (source, location) ->
 				new MoveHintController(manager, this,
 						source, location, moveCallback);
 		// attach tickets to hint
-		for (Move move : moves) {
-			move.accept(new Visitor<Unit>() {
-				@Override public Unit visit(SingleMove move) {
-					hints.computeIfAbsent(move.destination, t -> mapping.apply(move.source(), t)).addMove(move);
-					return Unit.VALUE;
-				}
+		Visitor<Unit> hint = new Visitor<>() {
+			@Override public Unit visit(SingleMove move) {
+				hints.computeIfAbsent(move.destination, t -> mapping.apply(move.source(), t)).addMove(move);
+				return Unit.VALUE;
+			}
 
-				@Override public Unit visit(DoubleMove move) {
-					hints.computeIfAbsent(move.destination1, t -> mapping.apply(move.source(), t));
-					hints.computeIfAbsent(move.destination2, t -> mapping.apply(move.source(), t)).addMove(move);
-					return Unit.VALUE;
-				}
-			});
-		}
+			@Override public Unit visit(DoubleMove move) {
+				hints.computeIfAbsent(move.destination1, t -> mapping.apply(move.source(), t));
+				hints.computeIfAbsent(move.destination2, t -> mapping.apply(move.source(), t)).addMove(move);
+				return Unit.VALUE;
+			}
+		};
+		forEachAvailableMove(board, move -> move.accept(hint));
 		hintPane.getChildren().setAll(hints.values().stream()
 				.map(MoveHintController::root)
 				.collect(Collectors.toList()));
-		drawMoveHighlights(moves);
+		// every destination, including the middle of double moves, has a hint
+		drawMoveHighlights(ImmutableSet.copyOf(hints.keySet()));
 		return () -> {};
 	}
 
+	// the board's available moves one at a time, game states hand them out without building
+	// the whole move set
+	private static void forEachAvailableMove(Board board, Consumer<? super Move> action) {
+		if (board instanceof GameState) ((GameState) board).forEachAvailableMove(action);
+		else board.getAvailableMoves().forEach(action);
+	}
+
 	void advanceModel(Model board) {
-		var moves = board.getCurrentBoard().getAvailableMoves();
-		var pieces = moves.stream().map(Move::commencedBy).collect(ImmutableSet.toImmutableSet());
-		if (moves.isEmpty())
+		var commencers = ImmutableSet.<Piece>builder();
+		forEachAvailableMove(board.getCurrentBoard(), move -> commencers.add(move.commencedBy()));
+		var pieces = commencers.build();
+		if (pieces.isEmpty())
 			throw new AssertionError("Model returned empty moves, did it pass all tests?");
 
 
-		var mrX = moves.stream().map(Move::commencedBy)
-				.collect(ImmutableSet.toImmutableSet())
-				.equals(ImmutableSet.of(MRX));
+		var mrX = pieces.equals(ImmutableSet.of(MRX));
 
 		if (mrX) counters.get(MRX).animateVisibility(true);
 
@@ -296,8 +303,7 @@ class MapController implements Controller, GameControl {
 		} else if (!mrX && detectiveAi.isDefined()) {
 			terminateAction = requestAi(board, detectiveAi.get());
 		} else {
-			terminateAction = requestHuman(
-					board.getCurrentBoard().getAvailableMoves(), m -> selectAndMove(model, m));
+			terminateAction = requestHuman(board.getCurrentBoard(), m -> selectAndMove(model, m));
 		}
 
 		notifications.show("notify_timeout",
@@ -352,7 +358,7 @@ class MapController implements Controller, GameControl {
 
 	@Override public void onModelChanged(@Nonnull Board board, @Nonnull Event event) {
 		if (event != Event.MOVE_MADE) return;
-		counters.get(MRX).animateVisibility(Iterables.getLast(board.getMrXTravelLog()).location().isPresent());
+		counters.get(MRX).animateVisibility(Iterables.getLast(board.getMrXTravelLog()).isRevealed());
 		advanceModel(model);
 	}
 
@@ -361,11 +367,13 @@ class MapController implements Controller, GameControl {
 
 
 	private void drawMoveHighlights(ImmutableSet<Move> moves) {
-		var destinations = moves.stream().flatMap(a -> a.accept(new FunctionalVisitor<>(
+		drawMoveHighlights(moves.stream().flatMap(a -> a.accept(new FunctionalVisitor<>(
 				m -> ImmutableSet.of(m.destination),
 				m -> ImmutableSet.of(m.destination1, m.destination2))).stream())
-				.collect(ImmutableSet.toImmutableSet());
+				.collect(ImmutableSet.toImmutableSet()));
+	}
 
+	private void drawMoveHighlights(Collection<Integer> destinations) {
 		for (Integer location : destinations) {
 			Point2D point = manager.coordinateAtNode(location);
 			Circle circle = new Circle(ScotlandYard.MAP_NODE_SIZE);
@@ -15,6 +15,25 @@ import org.junit.runners.Suite;
 		GameStateDetectivesAvailableMovesTest.class,
 		GameStateMrXAvailableMovesTest.class,
 		GameStatePlayoutTest.class,
-		ModelObserverTest.class
+		ModelObserverTest.class,
+		MoveCodecTest.class,
+		MoveSetTest.class,
+		MoveTableTest.class,
+		MoveGeneratorTest.class,
+		GameStateLegalityTest.class,
+		AvailableMoveStreamTest.class,
+		GameStateImmutabilityTest.class,
+		CompactGraphTest.class,
+		DistanceTableTest.class,
+		ReachabilityTableTest.class,
+		MapFileTest.class,
+		GraphReaderTest.class,
+		MutableGameStateTest.class,
+		PackedGameStateTest.class,
+		PlayerTest.class,
+		BoardQueryTest.class,
+		TravelLogTest.class,
+		LogEntryTest.class,
+		ZobristTest.class
 })
 public class AllTest {}
@@ -0,0 +1,46 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.GameFixtures.sixPlayerGame;
+
+/**
+ * Tests the streaming accessors of the available moves against {@link GameState#getAvailableMoves()}
+ */
+public class AvailableMoveStreamTest {
+
+	@Test public void testStreamingMatchesAvailableMoves() throws IOException {
+		var random = new Random(5);
+		GameState state = sixPlayerGame();
+		while (true) {
+			// ask for the streamed forms first, so they cannot lean on the built set
+			List<Move> visited = new ArrayList<>();
+			state.forEachAvailableMove(visited::add);
+			int count = state.countAvailableMoves();
+			var streamed = state.availableMoveStream().collect(Collectors.toList());
+			var parallel = state.availableMoveStream().parallel().collect(Collectors.toList());
+			var sampled = state.randomAvailableMove(random);
+
+			var moves = state.getAvailableMoves();
+			assertThat(visited).containsExactlyElementsOf(moves);
+			assertThat(streamed).containsExactlyElementsOf(moves);
+			assertThat(parallel).containsExactlyElementsOf(moves);
+			assertThat(count).isEqualTo(moves.size());
+			if (moves.isEmpty()) {
+				assertThat(sampled).isEmpty();
+				break;
+			}
+			assertThat(moves).contains(sampled.orElseThrow());
+			state = state.advance(sampled.get());
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.Piece.Detective;
+import uk.ac.bris.cs.scotlandyard.model.Piece.MrX;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.GameFixtures.playOut;
+import static uk.ac.bris.cs.scotlandyard.model.GameFixtures.sixPlayerGame;
+
+/**
+ * Tests that the primitive board queries agree with the boxed ones they stand in for
+ */
+public class BoardQueryTest {
+
+	private static void assertAgrees(Board board) {
+		for (Piece piece : ScotlandYard.ALL_PIECES) {
+			boolean present = board.getPlayers().contains(piece);
+			int location = piece.isDetective() && present ?
+					board.getDetectiveLocation((Detective) piece).orElseThrow() : -1;
+			assertThat(board.locationOf(piece)).isEqualTo(location);
+			for (Ticket ticket : Ticket.values()) {
+				int count = present ? board.getPlayerTickets(piece).orElseThrow().getCount(ticket) : 0;
+				assertThat(board.ticketCount(piece, ticket)).isEqualTo(count);
+			}
+		}
+	}
+
+	@Test public void testPrimitiveQueriesMatchBoxedQueries() throws IOException {
+		var random = new Random(3);
+		GameState start = sixPlayerGame();
+		var players = start.getPlayers();
+		assertThat(players).hasSize(6).contains(MrX.MRX);
+		playOut(start, random, (state, move) -> {
+			assertAgrees(state);
+			assertAgrees(new ImmutableBoard(state));
+			assertAgrees(MutableGameState.of(state));
+			// the players never change, so every state hands out the same set
+			assertThat(state.getPlayers()).isSameAs(players);
+		});
+	}
+}
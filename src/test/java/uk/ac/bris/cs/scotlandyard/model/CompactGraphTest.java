@@ -0,0 +1,59 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.ImmutableValueGraph;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests that the compact graph holds the same nodes, edges and transports as the graph it was
+ * made from
+ */
+public class CompactGraphTest {
+
+	static void assertSameGraph(CompactGraph compact,
+	                            ImmutableValueGraph<Integer, ImmutableSet<Transport>> graph) {
+		assertThat(compact.nodeCount()).isEqualTo(graph.nodes().size());
+		assertThat(compact.edgeCount()).isEqualTo(graph.edges().size());
+		for (int index = 0; index < compact.nodeCount(); index++) {
+			int node = compact.node(index);
+			assertThat(compact.indexOf(node)).isEqualTo(index);
+			assertThat(compact.degree(index)).isEqualTo(graph.adjacentNodes(node).size());
+			int previous = -1;
+			for (int edge = compact.start(index); edge < compact.start(index + 1); edge++) {
+				int neighbour = compact.node(compact.neighbour(edge));
+				assertThat(neighbour).isGreaterThan(previous);
+				previous = neighbour;
+				int mask = 0;
+				for (Transport transport : graph.edgeValue(node, neighbour).orElseThrow())
+					mask |= CompactGraph.mask(transport);
+				assertThat(compact.transports(edge)).isEqualTo(mask);
+			}
+		}
+	}
+
+	@Test public void testStandardGraph() throws IOException {
+		var graph = ScotlandYard.standardGraph();
+		var compact = new CompactGraph(graph);
+		assertSameGraph(compact, graph);
+		assertThat(compact.nodeCount()).isEqualTo(199);
+		assertThat(compact.maxNode()).isEqualTo(199);
+		assertThat(compact.indexOf(1)).isEqualTo(0);
+		assertThat(compact.contains(0)).isFalse();
+		assertThat(compact.indexOf(200)).isEqualTo(-1);
+		assertThat(compact.indexOf(-1)).isEqualTo(-1);
+	}
+
+	@Test public void testTicketMasks() {
+		assertThat(CompactGraph.mask(Ticket.TAXI)).isEqualTo(CompactGraph.mask(Transport.TAXI));
+		assertThat(CompactGraph.mask(Ticket.SECRET)).isEqualTo(0b1111);
+		assertThat(CompactGraph.mask(Ticket.DOUBLE)).isZero();
+	}
+}
@@ -0,0 +1,69 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.ImmutableValueGraph;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests the all pairs distances against a breadth first search over the graph itself
+ */
+public class DistanceTableTest {
+
+	private static Map<Integer, Integer> search(
+			ImmutableValueGraph<Integer, ImmutableSet<Transport>> graph, int source, int transports) {
+		Map<Integer, Integer> distances = new HashMap<>();
+		var queue = new ArrayDeque<Integer>();
+		distances.put(source, 0);
+		queue.add(source);
+		while (!queue.isEmpty()) {
+			int node = queue.poll();
+			for (int neighbour : graph.adjacentNodes(node)) {
+				boolean usable = graph.edgeValue(node, neighbour).orElseThrow().stream()
+						.anyMatch(transport -> (CompactGraph.mask(transport) & transports) != 0);
+				if (!usable || distances.containsKey(neighbour)) continue;
+				distances.put(neighbour, distances.get(node) + 1);
+				queue.add(neighbour);
+			}
+		}
+		return distances;
+	}
+
+	@Test public void testDistancesMatchSearch() throws IOException {
+		var graph = ScotlandYard.standardGraph();
+		var table = new GameSetup(graph, ScotlandYard.STANDARD24MOVES).distanceTable();
+		int taxi = CompactGraph.mask(Transport.TAXI);
+		int noUnderground = DistanceTable.DETECTIVE & ~CompactGraph.mask(Transport.UNDERGROUND);
+		for (int transports : new int[]{DistanceTable.ALL, DistanceTable.DETECTIVE, taxi, noUnderground}) {
+			for (int source = 1; source <= 199; source += 14) {
+				var expected = search(graph, source, transports);
+				for (int node : graph.nodes())
+					assertThat(table.distance(source, node, transports))
+							.isEqualTo(expected.getOrDefault(node, DistanceTable.UNREACHABLE));
+			}
+		}
+		assertThat(table.distance(1, 1)).isZero();
+		assertThat(table.distance(1, 46, CompactGraph.mask(Transport.UNDERGROUND))).isEqualTo(1);
+		// ferries only run between a few stations
+		assertThat(table.distance(1, 2, CompactGraph.mask(Transport.FERRY)))
+				.isEqualTo(DistanceTable.UNREACHABLE);
+	}
+
+	@Test public void testUnknownNodesAndTransportsShouldThrow() throws IOException {
+		var table = new DistanceTable(new CompactGraph(ScotlandYard.standardGraph()));
+		assertThatThrownBy(() -> table.distance(0, 1)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> table.distance(1, 200)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> table.distance(1, 2, DistanceTable.ALL + 1))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+}
@@ -0,0 +1,80 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.function.BiConsumer;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.GREEN;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.WHITE;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.YELLOW;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.STANDARD24MOVES;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.TAXI;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Shared fixtures for tests that play on the standard map: the setup, starting positions and a
+ * random playout. Import the methods statically.
+ */
+final class GameFixtures {
+
+	private GameFixtures() {}
+
+	/**
+	 * @return a new setup of the standard map with 24 moves
+	 */
+	@Nonnull static GameSetup standardSetup() throws IOException {
+		return new GameSetup(ScotlandYard.standardGraph(), STANDARD24MOVES);
+	}
+
+	/**
+	 * @return a new game with MrX and all five detectives on the standard map
+	 */
+	@Nonnull static GameState sixPlayerGame() throws IOException {
+		return new MyGameStateFactory().build(standardSetup(),
+				new Player(MRX, defaultMrXTickets(), 106),
+				new Player(RED, defaultDetectiveTickets(), 91),
+				new Player(GREEN, defaultDetectiveTickets(), 29),
+				new Player(BLUE, defaultDetectiveTickets(), 94),
+				new Player(WHITE, defaultDetectiveTickets(), 50),
+				new Player(YELLOW, defaultDetectiveTickets(), 138));
+	}
+
+	/**
+	 * @return {@link #sixPlayerGame()} after MrX and two detectives have moved, so the
+	 * remaining detectives are to move
+	 */
+	@Nonnull static GameState roundStart() throws IOException {
+		return sixPlayerGame()
+				.advance(new Move.SingleMove(MRX, 106, TAXI, 105))
+				.advance(new Move.SingleMove(YELLOW, 138, TAXI, 152))
+				.advance(new Move.SingleMove(WHITE, 50, TAXI, 49));
+	}
+
+	/**
+	 * Plays uniformly random moves until the game is over
+	 *
+	 * @param state the state to start from
+	 * @param random the source of the moves
+	 * @param beforeMove called with every state that is not over and the move about to be
+	 * played from it
+	 * @return the state the game ended in
+	 */
+	@Nonnull static GameState playOut(@Nonnull GameState state, @Nonnull Random random,
+	                                  @Nonnull BiConsumer<GameState, Move> beforeMove) {
+		while (state.getWinner().isEmpty()) {
+			var moves = state.getAvailableMoves().asList();
+			Move move = moves.get(random.nextInt(moves.size()));
+			beforeMove.accept(state, move);
+			state = state.advance(move);
+		}
+		return state;
+	}
+}
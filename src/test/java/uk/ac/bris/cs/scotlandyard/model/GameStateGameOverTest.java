@@ -123,6 +123,38 @@ public class GameStateGameOverTest extends ParameterisedModelTestBase {
 		assertGameIsOver(state);
 	}
 
+	@Test public void testDetectivesWinIfMrXHasOnlyDoubleTickets() {
+		// every double move starts with a single move, so MrX cannot move at all
+		var mrX = new Player(MRX, makeTickets(0, 0, 0, 2, 0), 86);
+		var blue = new Player(BLUE, defaultDetectiveTickets(), 108);
+		GameState state = gameStateFactory.build(standard24MoveSetup(), mrX, blue);
+		assertThat(state.getWinner()).containsExactlyInAnyOrder(BLUE);
+		assertThat(state.getAvailableMoves()).isEmpty();
+	}
+
+	@Test public void testDetectivesWinIfMrXIsLeftWithOnlyDoubleMovesOutOfReach() {
+		var mrX = new Player(MRX, makeTickets(0, 0, 0, 2, 1), 86);
+		var blue = new Player(BLUE, defaultDetectiveTickets(), 108);
+		GameState state = gameStateFactory.build(standard24MoveSetup(), mrX, blue);
+		assertGameIsNotOver(state);
+		state = state.advance(secret(MRX, 86, 104));
+		// MrX is given the bus ticket, but there is no bus from 104 to start a double move with
+		state = state.advance(bus(BLUE, 108, 105));
+		assertThat(state.getWinner()).containsExactlyInAnyOrder(BLUE);
+		assertThat(state.getAvailableMoves()).isEmpty();
+	}
+
+	@Test public void testMrXWinsIfEveryDetectiveIsBlockedByTheOthers() {
+		// red holds a ticket, but both of its taxi destinations are taken by stuck detectives
+		var mrX = new Player(MRX, defaultMrXTickets(), 86);
+		var red = new Player(RED, makeTickets(1, 0, 0, 0, 0), 2);
+		var blue = new Player(BLUE, makeTickets(0, 0, 0, 0, 0), 10);
+		var green = new Player(GREEN, makeTickets(0, 0, 0, 0, 0), 20);
+		GameState state = gameStateFactory.build(standard24MoveSetup(), mrX, red, blue, green);
+		assertThat(state.getWinner()).containsExactlyInAnyOrder(MRX);
+		assertThat(state.getAvailableMoves()).isEmpty();
+	}
+
 	@Test public void testGameNotOverIfSomeDetectivesAreStuck() {
 		var mrX = new Player(MRX, defaultMrXTickets(), 40);
 		var blue = new Player(BLUE, makeTickets(2, 0, 0, 0, 0), 39); // note 2 taxi tickets
@@ -0,0 +1,78 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.GameFixtures.roundStart;
+import static uk.ac.bris.cs.scotlandyard.model.GameFixtures.sixPlayerGame;
+
+/**
+ * Tests that advancing never changes the state it starts from, so states can be shared
+ */
+public class GameStateImmutabilityTest {
+
+	private static List<ImmutableBoard> children(GameState parent) {
+		return parent.getAvailableMoves().stream()
+				.map(move -> new ImmutableBoard(parent.advance(move)))
+				.collect(Collectors.toList());
+	}
+
+	@Test public void testBranchingFromSharedParentLeavesItUnchanged() throws IOException {
+		// detectives to move, every detective move hands MrX a ticket
+		GameState parent = roundStart();
+		var before = new ImmutableBoard(parent);
+		long key = parent.zobristKey();
+
+		var children = children(parent);
+		assertThat(new ImmutableBoard(parent)).isEqualTo(before);
+		assertThat(parent.zobristKey()).isEqualTo(key).isEqualTo(Zobrist.hash(parent));
+		// a second pass over the same parent sees exactly what the first did
+		assertThat(children(parent)).isEqualTo(children);
+		for (Move move : parent.getAvailableMoves()) {
+			assertThat(new ImmutableBoard(parent.advance(move)))
+					.isEqualTo(new ImmutableBoard(roundStart().advance(move)));
+		}
+	}
+
+	@Test public void testSharedParentExpandedFromManyThreads() throws IOException {
+		GameState parent = roundStart();
+		var sequential = children(parent);
+		for (int run = 0; run < 10; run++) {
+			var parallel = parent.getAvailableMoves().asList().parallelStream()
+					.map(move -> new ImmutableBoard(parent.advance(move)))
+					.collect(Collectors.toList());
+			assertThat(parallel).isEqualTo(sequential);
+		}
+	}
+
+	private static void assertExpandsLikeAdvance(GameState parent, Map<Move, GameState> expanded) {
+		assertThat(expanded.keySet()).containsExactlyElementsOf(parent.getAvailableMoves());
+		expanded.forEach((move, child) -> {
+			assertThat(new ImmutableBoard(child))
+					.isEqualTo(new ImmutableBoard(parent.advance(move)));
+			assertThat(child.zobristKey()).isEqualTo(Zobrist.hash(child));
+		});
+	}
+
+	@Test public void testExpandAllMatchesAdvance() throws IOException {
+		// MrX's fan-out with double moves, then a detective's
+		for (GameState parent : List.of(sixPlayerGame(),
+				roundStart())) {
+			assertExpandsLikeAdvance(parent, parent.expandAll());
+			assertExpandsLikeAdvance(parent, parent.expandAll(1));
+			assertExpandsLikeAdvance(parent, parent.expandAll(Integer.MAX_VALUE));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testExpandAllRejectsNonPositiveThreshold() throws IOException {
+		roundStart().expandAll(0);
+	}
+}
@@ -0,0 +1,95 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.Move.DoubleMove;
+import uk.ac.bris.cs.scotlandyard.model.Move.SingleMove;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.GameFixtures.playOut;
+import static uk.ac.bris.cs.scotlandyard.model.GameFixtures.sixPlayerGame;
+
+/**
+ * Tests that advance accepts exactly the available moves, now that it checks moves on their own
+ */
+public class GameStateLegalityTest {
+
+	// moves that differ from an available move in one detail
+	private static List<Move> nearMisses(Move move) {
+		List<Move> misses = new ArrayList<>();
+		for (Piece piece : ScotlandYard.ALL_PIECES) {
+			for (Ticket ticket : Ticket.values()) {
+				for (int delta = -1; delta <= 1; delta++) {
+					if (move instanceof SingleMove) {
+						var m = (SingleMove) move;
+						misses.add(new SingleMove(piece, m.source(), ticket, m.destination + delta));
+						misses.add(new SingleMove(piece, m.source() + delta, ticket, m.destination));
+					} else {
+						var m = (DoubleMove) move;
+						misses.add(new DoubleMove(piece, m.source(), m.ticket1, m.destination1,
+								ticket, m.destination2 + delta));
+						misses.add(new DoubleMove(piece, m.source(), ticket, m.destination1 + delta,
+								m.ticket2, m.destination2));
+					}
+				}
+			}
+		}
+		return misses;
+	}
+
+	private static void assertRejectsNearMisses(GameState state) {
+		var moves = state.getAvailableMoves().asList();
+		assertThatThrownBy(() -> state.advance(null))
+				.isInstanceOf(IllegalArgumentException.class);
+		// advanceAll checks moves on a mutable copy, which must agree
+		var mutable = MutableGameState.of(state);
+		for (Move move : moves) assertThat(mutable.isAvailable(move)).as(move.toString()).isTrue();
+		for (Move move : moves.subList(0, Math.min(moves.size(), 4))) {
+			for (Move miss : nearMisses(move)) {
+				assertThat(mutable.isAvailable(miss)).as(miss.toString()).isEqualTo(moves.contains(miss));
+				if (moves.contains(miss)) continue;
+				assertThatThrownBy(() -> state.advance(miss))
+						.isInstanceOf(IllegalArgumentException.class)
+						.hasMessage("Illegal move: " + miss);
+			}
+		}
+	}
+
+	@Test public void testAdvanceRejectsExactlyTheUnavailableMoves() throws IOException {
+		var random = new Random(12);
+		for (int game = 0; game < 3; game++) {
+			GameState end = playOut(sixPlayerGame(), random,
+					(state, move) -> assertRejectsNearMisses(state));
+			assertRejectsNearMisses(end);
+		}
+	}
+
+	@Test public void testAdvanceAllReplaysAGame() throws IOException {
+		var random = new Random(21);
+		GameState start = sixPlayerGame();
+		List<Move> played = new ArrayList<>();
+		GameState end = playOut(start, random, (state, move) -> played.add(move));
+		GameState replayed = start.advanceAll(played);
+		assertThat(new ImmutableBoard(replayed)).isEqualTo(new ImmutableBoard(end));
+		assertThat(replayed.zobristKey()).isEqualTo(end.zobristKey());
+		assertThat(start.advanceAll(List.of())).isSameAs(start);
+
+		// the game is over after the last move, so nothing may follow it
+		List<Move> tooMany = new ArrayList<>(played);
+		tooMany.add(played.get(played.size() - 2));
+		assertThatThrownBy(() -> start.advanceAll(tooMany))
+				.isInstanceOf(IllegalArgumentException.class);
+		// a move out of turn
+		assertThatThrownBy(() -> start.advanceAll(played.subList(1, played.size())))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Illegal move: " + played.get(1));
+	}
+}
@@ -0,0 +1,103 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.io.Resources;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.GameFixtures.standardSetup;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Tests that the streaming graph parser reads the same graphs as {@link ScotlandYard#readGraph}
+ */
+public class GraphReaderTest {
+
+	private static CompactGraph read(String text) throws IOException {
+		return ScotlandYard.readCompactGraph(new StringReader(text));
+	}
+
+	private static void assertReadsLikeReadGraph(String text) throws IOException {
+		CompactGraphTest.assertSameGraph(read(text), ScotlandYard.readGraph(text));
+	}
+
+	@Test public void testStandardGraph() throws IOException {
+		try (var stream = Resources.getResource("graph.txt").openStream()) {
+			var graph = ScotlandYard.readCompactGraph(stream);
+			CompactGraphTest.assertSameGraph(graph, ScotlandYard.standardGraph());
+			assertThat(graph.toValueGraph()).isEqualTo(ScotlandYard.standardGraph());
+		}
+		assertReadsLikeReadGraph(
+				Resources.toString(Resources.getResource("graph.txt"), StandardCharsets.UTF_8));
+	}
+
+	@Test public void testPlaysOnStreamedGraph() throws IOException {
+		CompactGraph graph;
+		try (var stream = Resources.getResource("graph.txt").openStream()) {
+			graph = ScotlandYard.readCompactGraph(stream);
+		}
+		var setup = new GameSetup(graph, ScotlandYard.STANDARD24MOVES);
+		var copied = standardSetup();
+		assertThat(setup.compactGraph()).isSameAs(graph);
+		assertThat(setup.graph).isEqualTo(ScotlandYard.standardGraph());
+		assertThat(setup).isEqualTo(copied).hasSameHashCodeAs(copied);
+
+		// the same random game on both setups
+		var factory = new MyGameStateFactory();
+		GameState state = factory.build(setup, new Player(MRX, defaultMrXTickets(), 106),
+				new Player(RED, defaultDetectiveTickets(), 91),
+				new Player(BLUE, defaultDetectiveTickets(), 94));
+		GameState expected = factory.build(copied, new Player(MRX, defaultMrXTickets(), 106),
+				new Player(RED, defaultDetectiveTickets(), 91),
+				new Player(BLUE, defaultDetectiveTickets(), 94));
+		var random = new Random(9);
+		while (true) {
+			assertThat(state.getAvailableMoves()).isEqualTo(expected.getAvailableMoves());
+			assertThat(state.getWinner()).isEqualTo(expected.getWinner());
+			if (!state.getWinner().isEmpty()) break;
+			var moves = state.getAvailableMoves().asList();
+			Move move = moves.get(random.nextInt(moves.size()));
+			state = state.advance(move);
+			expected = expected.advance(move);
+		}
+	}
+
+	@Test public void testLargeGraphAcrossManyBuffers() throws IOException {
+		var random = new Random(7);
+		int nodes = 5000, edges = 20000;
+		var text = new StringBuilder(nodes + " " + edges + "\n");
+		for (int node = 1; node <= nodes; node++) text.append(node).append('\n');
+		String[] transports = {"Taxi", "Bus", "Underground", "Ferry"};
+		for (int edge = 0; edge < edges; edge++) {
+			int from = 1 + random.nextInt(nodes), to = 1 + (from + random.nextInt(nodes - 1)) % nodes;
+			text.append(from).append(' ').append(to).append(' ')
+					.append(transports[random.nextInt(transports.length)]).append('\n');
+		}
+		assertReadsLikeReadGraph(text.toString());
+	}
+
+	@Test public void testLinesCountLikeReadGraph() throws IOException {
+		// a blank line takes the place of a node, nodes named only by edges still count,
+		// repeated edges add their transports together
+		assertReadsLikeReadGraph("3 3\n1\n\n2\n1 2 Taxi\r\n2 1 bus\n2 5 FERRY");
+	}
+
+	@Test public void testMalformedGraphsShouldThrow() {
+		for (String text : new String[]{"", "2 0\n1\n", "1 1\n1\n1 2 Boat\n", "1 1\n1\n1 1 Taxi\n",
+				"1 1\n1\n1 Taxi\n", "1 0\n1 2\n", "x 0\n", "1 0\n99999999999\n"}) {
+			assertThatThrownBy(() -> read(text)).as(text).isInstanceOf(IllegalArgumentException.class);
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for the interned {@link LogEntry} factories and primitive accessors
+ */
+public class LogEntryTest {
+
+	private static Object roundTrip(Object object) throws IOException, ClassNotFoundException {
+		var bytes = new ByteArrayOutputStream();
+		try (var out = new ObjectOutputStream(bytes)) { out.writeObject(object); }
+		try (var in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			return in.readObject();
+		}
+	}
+
+	@Test public void testFactoriesHandOutSharedEntries() {
+		for (Ticket ticket : Ticket.values()) {
+			assertThat(LogEntry.hidden(ticket)).isSameAs(LogEntry.hidden(ticket));
+			assertThat(LogEntry.reveal(ticket, 0)).isSameAs(LogEntry.reveal(ticket, 0));
+			assertThat(LogEntry.reveal(ticket, 199)).isSameAs(LogEntry.reveal(ticket, 199));
+		}
+		assertThat(LogEntry.reveal(Ticket.TAXI, 42)).isNotEqualTo(LogEntry.reveal(Ticket.BUS, 42));
+		// outside of the table entries are still equal, just not shared
+		int far = LogEntry.INTERNED_LOCATIONS + 1;
+		assertThat(LogEntry.reveal(Ticket.TAXI, far)).isEqualTo(LogEntry.reveal(Ticket.TAXI, far));
+		assertThatThrownBy(() -> LogEntry.reveal(Ticket.TAXI, -1))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test public void testPrimitiveAccessorsMatchLocation() {
+		LogEntry hidden = LogEntry.hidden(Ticket.SECRET);
+		assertThat(hidden.isRevealed()).isFalse();
+		assertThat(hidden.locationOrMinusOne()).isEqualTo(-1);
+		assertThat(hidden.location()).isEmpty();
+		LogEntry reveal = LogEntry.reveal(Ticket.SECRET, 13);
+		assertThat(reveal.isRevealed()).isTrue();
+		assertThat(reveal.locationOrMinusOne()).isEqualTo(13);
+		assertThat(reveal.location()).contains(13);
+	}
+
+	@Test public void testDeserialisedEntriesAreInterned() throws Exception {
+		LogEntry reveal = LogEntry.reveal(Ticket.BUS, 77);
+		assertThat(roundTrip(reveal)).isSameAs(reveal);
+		assertThat(roundTrip(LogEntry.hidden(Ticket.TAXI))).isSameAs(LogEntry.hidden(Ticket.TAXI));
+		LogEntry far = LogEntry.reveal(Ticket.BUS, 1000);
+		assertThat(roundTrip(far)).isEqualTo(far);
+	}
+}
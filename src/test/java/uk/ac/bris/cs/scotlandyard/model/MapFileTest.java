@@ -0,0 +1,83 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.io.Resources;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests the binary map format against the text files it was converted from
+ */
+public class MapFileTest {
+
+	@Rule public TemporaryFolder folder = new TemporaryFolder();
+
+	private static MapFile fromText() throws IOException {
+		return MapFile.fromText(
+				Resources.toString(Resources.getResource("graph.txt"), StandardCharsets.UTF_8),
+				Resources.toString(Resources.getResource("pos.txt"), StandardCharsets.UTF_8));
+	}
+
+	@Test public void testStandardMapMatchesTextFiles() throws IOException {
+		var text = fromText();
+		var binary = ScotlandYard.standardMap();
+		CompactGraphTest.assertSameGraph(binary.graph(), text.graph().toValueGraph());
+		assertThat(binary.positions()).isEqualTo(text.positions()).hasSize(199);
+		assertThat(ScotlandYard.standardGraph()).isEqualTo(ScotlandYard.readGraph(
+				Resources.toString(Resources.getResource("graph.txt"), StandardCharsets.UTF_8)));
+	}
+
+	@Test public void testWrittenFileReadsBack() throws IOException {
+		var map = fromText();
+		var path = folder.getRoot().toPath().resolve("map.bin");
+		map.write(path);
+		var read = MapFile.read(path);
+		assertThat(read.graph().toValueGraph()).isEqualTo(map.graph().toValueGraph());
+		assertThat(read.positions()).isEqualTo(map.positions());
+	}
+
+	@Test public void testBadFilesShouldThrow() throws IOException {
+		ByteBuffer bytes = fromText().toBuffer();
+		assertThatThrownBy(() -> MapFile.read(ByteBuffer.allocate(16)))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> MapFile.read(bytes.duplicate().limit(bytes.limit() / 2)))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	private static ByteBuffer withByte(ByteBuffer bytes, int index, int value) {
+		ByteBuffer copy = ByteBuffer.allocate(bytes.remaining()).put(bytes.duplicate()).flip();
+		return copy.put(index, (byte) value);
+	}
+
+	@Test public void testCorruptTransportsShouldThrow() throws IOException {
+		var graph = fromText().graph();
+		ByteBuffer bytes = fromText().toBuffer();
+		// header, stations, edge starts and neighbours come before the transports
+		int first = Integer.BYTES * (4 + 2 * graph.nodeCount() + 1 + 2 * graph.edgeCount());
+		assertThat(bytes.get(first)).isEqualTo((byte) graph.transports(0));
+		assertThat(MapFile.read(withByte(bytes, first, graph.transports(0))).graph().toValueGraph())
+				.isEqualTo(graph.toValueGraph());
+
+		assertThatThrownBy(() -> MapFile.read(withByte(bytes, first, 0)))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("Bad transports");
+		assertThatThrownBy(() -> MapFile.read(withByte(bytes, first, 1 << 4)))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("Bad transports");
+		assertThatThrownBy(() -> MapFile.read(withByte(bytes, first, -1)))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("Bad transports");
+		// a valid mask that differs from the one on the way back
+		assertThatThrownBy(() -> MapFile.read(withByte(bytes, first, graph.transports(0) ^ 0b1000)))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("not the same from both ends");
+	}
+}
@@ -0,0 +1,82 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.Iterables;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import uk.ac.bris.cs.scotlandyard.model.Move.DoubleMove;
+import uk.ac.bris.cs.scotlandyard.model.Move.SingleMove;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.YELLOW;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.BUS;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.SECRET;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.TAXI;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Tests the move encoding and the encoded move list
+ */
+public class MoveCodecTest {
+
+	@Test public void testSingleMoveRoundTrip() {
+		var move = new SingleMove(YELLOW, 199, BUS, 1);
+		long encoded = MoveCodec.encode(move);
+		assertThat(MoveCodec.decode(encoded)).isEqualTo(move);
+		assertThat(MoveCodec.piece(encoded)).isEqualTo(YELLOW);
+		assertThat(MoveCodec.isDouble(encoded)).isFalse();
+		assertThat(MoveCodec.source(encoded)).isEqualTo(199);
+		assertThat(MoveCodec.ticket1(encoded)).isEqualTo(BUS);
+		assertThat(MoveCodec.destination(encoded)).isEqualTo(1);
+	}
+
+	@Test public void testDoubleMoveRoundTrip() {
+		var move = new DoubleMove(MRX, 0, SECRET, MoveCodec.MAX_NODE, TAXI, 42);
+		long encoded = MoveCodec.encode(move);
+		assertThat(MoveCodec.decode(encoded)).isEqualTo(move);
+		assertThat(MoveCodec.isDouble(encoded)).isTrue();
+		assertThat(MoveCodec.destination1(encoded)).isEqualTo(MoveCodec.MAX_NODE);
+		assertThat(MoveCodec.ticket2(encoded)).isEqualTo(TAXI);
+		assertThat(MoveCodec.destination(encoded)).isEqualTo(42);
+	}
+
+	@Test public void testDistinctMovesHaveDistinctEncodings() {
+		assertThat(MoveCodec.encode(new SingleMove(MRX, 1, TAXI, 8)))
+				.isNotEqualTo(MoveCodec.encode(new SingleMove(MRX, 1, SECRET, 8)))
+				.isNotEqualTo(MoveCodec.encode(new DoubleMove(MRX, 1, TAXI, 8, TAXI, 1)));
+	}
+
+	@Test public void testNodeOutOfRangeShouldThrow() {
+		assertThatThrownBy(() -> MoveCodec.single(MRX, -1, TAXI, 8))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> MoveCodec.single(MRX, 1, TAXI, MoveCodec.MAX_NODE + 1))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test public void testGeneratedMovesRoundTrip() throws IOException {
+		var generator = MoveGenerator.of(new CompactGraph(ScotlandYard.standardGraph()));
+		var mrX = new Player(MRX, defaultMrXTickets(), 106);
+		var yellow = new Player(YELLOW, defaultDetectiveTickets(), 105);
+		long[] occupied = generator.occupancy(List.of(yellow));
+
+		var encoded = new MoveList(1);
+		generator.singleMoves(mrX, 106, occupied, encoded);
+		generator.doubleMoves(mrX, 106, occupied, encoded);
+		assertThat(encoded.size()).isGreaterThan(1);
+		assertThat(encoded.toMoves()).containsExactlyElementsOf(
+				Iterables.concat(
+						generator.singleMoves(mrX, 106, occupied),
+						generator.doubleMoves(mrX, 106, occupied)));
+		for (int i = 0; i < encoded.size(); i++)
+			assertThat(MoveCodec.encode(encoded.move(i))).isEqualTo(encoded.get(i));
+
+		encoded.clear();
+		assertThat(encoded.isEmpty()).isTrue();
+	}
+}
@@ -0,0 +1,373 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.ImmutableValueGraph;
+import com.google.common.graph.MutableValueGraph;
+import com.google.common.graph.ValueGraph;
+import com.google.common.graph.ValueGraphBuilder;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.Move.DoubleMove;
+import uk.ac.bris.cs.scotlandyard.model.Move.SingleMove;
+import uk.ac.bris.cs.scotlandyard.model.Piece.Detective;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.GameFixtures.standardSetup;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+
+/**
+ * Tests the move generators against moves worked out directly from the Guava graph
+ */
+public class MoveGeneratorTest {
+
+	private static final Transport[] TRANSPORTS = {
+			Transport.TAXI, Transport.BUS, Transport.UNDERGROUND, Transport.FERRY};
+
+	// the single moves the rules allow, straight from the Guava graph
+	static Set<Move> referenceSingleMoves(ValueGraph<Integer, ImmutableSet<Transport>> graph,
+	                                      Piece piece, int source, int[] tickets,
+	                                      Set<Integer> occupied) {
+		Set<Move> moves = new LinkedHashSet<>();
+		for (int destination : graph.adjacentNodes(source)) {
+			if (occupied.contains(destination)) continue;
+			for (Transport transport : graph.edgeValue(source, destination).orElseThrow()) {
+				if (tickets[transport.requiredTicket().ordinal()] > 0)
+					moves.add(new SingleMove(piece, source, transport.requiredTicket(), destination));
+				if (tickets[Ticket.SECRET.ordinal()] > 0)
+					moves.add(new SingleMove(piece, source, Ticket.SECRET, destination));
+			}
+		}
+		return moves;
+	}
+
+	// the double moves the rules allow: two single moves, paying for the first before the second
+	static Set<Move> referenceDoubleMoves(ValueGraph<Integer, ImmutableSet<Transport>> graph,
+	                                      Piece piece, int source, int[] tickets,
+	                                      Set<Integer> occupied) {
+		Set<Move> moves = new LinkedHashSet<>();
+		if (tickets[Ticket.DOUBLE.ordinal()] == 0) return moves;
+		for (Move move : referenceSingleMoves(graph, piece, source, tickets, occupied)) {
+			var first = (SingleMove) move;
+			int[] left = tickets.clone();
+			left[first.ticket.ordinal()]--;
+			for (Move next : referenceSingleMoves(graph, piece, first.destination, left, occupied)) {
+				var second = (SingleMove) next;
+				moves.add(new DoubleMove(piece, source, first.ticket, first.destination,
+						second.ticket, second.destination));
+			}
+		}
+		return moves;
+	}
+
+	// a connected graph with the given numbers of stations, numbered from 1, and edges
+	static ImmutableValueGraph<Integer, ImmutableSet<Transport>> randomGraph(
+			int nodes, int edges, Random random) {
+		MutableValueGraph<Integer, ImmutableSet<Transport>> graph =
+				ValueGraphBuilder.undirected().expectedNodeCount(nodes).build();
+		for (int node = 1; node <= nodes; node++) graph.addNode(node);
+		for (int node = 1; node < nodes; node++)
+			graph.putEdgeValue(node, node + 1, ImmutableSet.of(Transport.TAXI));
+		while (graph.edges().size() < edges) {
+			int u = 1 + random.nextInt(nodes), v = 1 + random.nextInt(nodes);
+			if (u == v || graph.hasEdgeConnecting(u, v)) continue;
+			var transports = ImmutableSet.<Transport>builder();
+			for (Transport transport : TRANSPORTS) if (random.nextInt(3) == 0) transports.add(transport);
+			transports.add(TRANSPORTS[random.nextInt(TRANSPORTS.length)]);
+			graph.putEdgeValue(u, v, transports.build());
+		}
+		return ImmutableValueGraph.copyOf(graph);
+	}
+
+	private static int[] tickets(Board board, Piece piece) {
+		int[] counts = new int[Ticket.values().length];
+		for (Ticket ticket : Ticket.values())
+			counts[ticket.ordinal()] = board.getPlayerTickets(piece).orElseThrow().getCount(ticket);
+		return counts;
+	}
+
+	@Test public void testLargeMapPlaysWithoutBitsets() {
+		var graph = randomGraph(60_000, 180_000, new Random(1));
+		var setup = new GameSetup(graph, ScotlandYard.STANDARD24MOVES);
+		assertThat(setup.moveGenerator()).isInstanceOf(CompactMoveGenerator.class);
+		assertThat(setup.moveGenerator().words()).isEqualTo(60_001 / 64 + 1);
+		// far too many edges to intern every single move, they are made as needed instead
+		var table = setup.moveTable();
+		assertThat(table.single(MRX, 1, Ticket.TAXI, 2))
+				.isEqualTo(new SingleMove(MRX, 1, Ticket.TAXI, 2))
+				.isNotSameAs(table.single(MRX, 1, Ticket.TAXI, 2));
+
+		int mrX = 30_000;
+		GameState state = new MyGameStateFactory().build(setup,
+				new Player(MRX, ScotlandYard.defaultMrXTickets(), mrX),
+				new Player(Detective.RED, ScotlandYard.defaultDetectiveTickets(), 10_000),
+				new Player(Detective.GREEN, ScotlandYard.defaultDetectiveTickets(), 20_000),
+				new Player(Detective.BLUE, ScotlandYard.defaultDetectiveTickets(), 30_001));
+		var random = new Random(2);
+		for (int round = 0; round < 5 && state.getWinner().isEmpty(); round++) {
+			Set<Integer> occupied = new HashSet<>();
+			for (Detective detective : Detective.values())
+				state.getDetectiveLocation(detective).ifPresent(occupied::add);
+			Set<Move> expected = new HashSet<>(
+					referenceSingleMoves(graph, MRX, mrX, tickets(state, MRX), occupied));
+			expected.addAll(referenceDoubleMoves(graph, MRX, mrX, tickets(state, MRX), occupied));
+			assertThat(state.getAvailableMoves()).containsExactlyInAnyOrderElementsOf(expected);
+
+			Move move = state.getAvailableMoves().asList()
+					.get(random.nextInt(state.getAvailableMoves().size()));
+			mrX = move instanceof DoubleMove ?
+					((DoubleMove) move).destination2 : ((SingleMove) move).destination;
+			state = state.advance(move);
+
+			// the detectives move one at a time, each from the moves left to all of them
+			Set<Piece> remaining = new HashSet<>(state.getPlayers());
+			remaining.remove(MRX);
+			while (!remaining.isEmpty() && state.getWinner().isEmpty()) {
+				expected.clear();
+				for (Piece piece : remaining)
+					expected.addAll(referenceSingleMoves(graph, piece,
+							state.getDetectiveLocation((Detective) piece).orElseThrow(),
+							tickets(state, piece), occupied));
+				assertThat(state.getAvailableMoves()).containsExactlyInAnyOrderElementsOf(expected);
+				move = state.getAvailableMoves().asList()
+						.get(random.nextInt(state.getAvailableMoves().size()));
+				occupied.remove(move.source());
+				occupied.add(((SingleMove) move).destination);
+				remaining.remove(move.commencedBy());
+				state = state.advance(move);
+			}
+		}
+	}
+
+	// both generators over the same graph
+	private static List<MoveGenerator> generators(CompactGraph graph) {
+		return List.of(
+				new BitboardMoveGenerator(graph, new MoveTable(graph)),
+				new CompactMoveGenerator(graph, new MoveTable(graph)));
+	}
+
+	private static Player player(Piece piece, int[] tickets, int location) {
+		var map = ImmutableMap.<Ticket, Integer>builder();
+		for (Ticket ticket : Ticket.values()) map.put(ticket, tickets[ticket.ordinal()]);
+		return new Player(piece, map.build(), location);
+	}
+
+	@Test public void testMatchesReferenceOnStandardMap() throws IOException {
+		var graph = ScotlandYard.standardGraph();
+		var nodes = List.copyOf(graph.nodes());
+		var generators = generators(new CompactGraph(graph));
+		var random = new Random(11);
+		for (int run = 0; run < 2000; run++) {
+			int source = nodes.get(random.nextInt(nodes.size()));
+			int[] tickets = new int[Ticket.values().length];
+			for (int i = 0; i < tickets.length; i++) tickets[i] = random.nextInt(3);
+			// detectives on some of the neighbours and elsewhere, never on the source
+			List<Player> detectives = new ArrayList<>();
+			Set<Integer> occupied = new HashSet<>();
+			for (int node : graph.adjacentNodes(source)) {
+				if (random.nextInt(3) != 0) continue;
+				detectives.add(new Player(Detective.RED, ScotlandYard.defaultDetectiveTickets(), node));
+				occupied.add(node);
+			}
+			int elsewhere = nodes.get(random.nextInt(nodes.size()));
+			if (elsewhere != source) {
+				detectives.add(new Player(Detective.BLUE, ScotlandYard.defaultDetectiveTickets(), elsewhere));
+				occupied.add(elsewhere);
+			}
+			var mrX = player(MRX, tickets, source);
+			var singles = referenceSingleMoves(graph, MRX, source, tickets, occupied);
+			var doubles = referenceDoubleMoves(graph, MRX, source, tickets, occupied);
+
+			List<long[]> encoded = new ArrayList<>();
+			for (MoveGenerator generator : generators) {
+				long[] bits = generator.occupancy(detectives);
+				for (int node : nodes)
+					assertThat(MoveGenerator.isOccupied(node, bits)).isEqualTo(occupied.contains(node));
+
+				List<Move> singleMoves = new ArrayList<>(generator.singleMoves(mrX, source, bits));
+				assertThat(singleMoves).doesNotHaveDuplicates()
+						.containsExactlyInAnyOrderElementsOf(singles);
+				List<Move> doubleMoves = new ArrayList<>(generator.doubleMoves(mrX, source, bits));
+				assertThat(doubleMoves).doesNotHaveDuplicates()
+						.containsExactlyInAnyOrderElementsOf(doubles);
+				assertThat(generator.hasSingleMove(mrX, source, bits)).isEqualTo(!singles.isEmpty());
+				assertThat(generator.hasSingleMove(source, tickets, bits)).isEqualTo(!singles.isEmpty());
+				assertThat(generator.hasDoubleMove(source, tickets, bits)).isEqualTo(!doubles.isEmpty());
+
+				// first hops expanded one at a time give the same double moves
+				var prefixes = new MoveList();
+				generator.doubleMovePrefixes(MRX, source, tickets, bits, prefixes);
+				var expanded = new MoveList();
+				for (int i = 0; i < prefixes.size(); i++)
+					generator.doubleMovesAfter(prefixes.get(i), tickets, bits, expanded);
+				assertThat(expanded.toMoves()).containsExactlyInAnyOrderElementsOf(doubles);
+
+				var all = new MoveList();
+				generator.singleMoves(MRX, source, tickets, bits, all);
+				generator.doubleMoves(MRX, source, tickets, bits, all);
+				encoded.add(all.toArray());
+			}
+			// and in the same order
+			assertThat(encoded.get(1)).isEqualTo(encoded.get(0));
+		}
+	}
+
+	@Test public void testReachesMatchesEdges() throws IOException {
+		var graph = ScotlandYard.standardGraph();
+		for (MoveGenerator generator : generators(new CompactGraph(graph))) {
+			for (int source : graph.nodes()) {
+				for (int destination : graph.nodes()) {
+					var transports = graph.edgeValueOrDefault(source, destination, ImmutableSet.of());
+					for (Ticket ticket : Ticket.values()) {
+						boolean expected = ticket == Ticket.SECRET ? !transports.isEmpty() :
+								transports.stream().anyMatch(t -> t.requiredTicket() == ticket);
+						assertThat(generator.reaches(ticket, source, destination))
+								.as("%s from %s to %s", ticket, source, destination)
+								.isEqualTo(expected);
+					}
+				}
+			}
+			assertThat(generator.reaches(Ticket.TAXI, 0, 1)).isFalse();
+			assertThat(generator.reaches(Ticket.TAXI, 1, 200)).isFalse();
+		}
+	}
+
+	@Test public void testSurroundedPieceHasNoMoves() throws IOException {
+		var graph = ScotlandYard.standardGraph();
+		for (MoveGenerator generator : generators(new CompactGraph(graph))) {
+			List<Player> detectives = new ArrayList<>();
+			for (int node : graph.adjacentNodes(1))
+				detectives.add(new Player(Detective.RED, ScotlandYard.defaultDetectiveTickets(), node));
+			long[] occupied = generator.occupancy(detectives);
+			var mrX = new Player(MRX, ScotlandYard.defaultMrXTickets(), 1);
+			assertThat(generator.singleMoves(mrX, 1, occupied)).isEmpty();
+			assertThat(generator.doubleMoves(mrX, 1, occupied)).isEmpty();
+			assertThat(generator.hasSingleMove(mrX, 1, occupied)).isFalse();
+			assertThat(generator.hasDoubleMove(1, MoveGenerator.ticketCounts(mrX), occupied)).isFalse();
+		}
+	}
+
+	@Test public void testExistenceChecksNeedTheTickets() throws IOException {
+		for (MoveGenerator generator : generators(new CompactGraph(ScotlandYard.standardGraph()))) {
+			var yellow = new Player(Detective.YELLOW, ScotlandYard.defaultDetectiveTickets(), 105);
+			long[] occupied = generator.occupancy(List.of(yellow));
+			assertThat(generator.hasSingleMove(106, new int[]{1, 2, 1, 1, 1}, occupied)).isTrue();
+			assertThat(generator.hasDoubleMove(106, new int[]{1, 2, 1, 1, 1}, occupied)).isTrue();
+			// no double ticket, and only a double ticket
+			assertThat(generator.hasDoubleMove(106, new int[]{1, 2, 1, 0, 1}, occupied)).isFalse();
+			assertThat(generator.hasSingleMove(106, new int[]{0, 0, 0, 1, 0}, occupied)).isFalse();
+			assertThat(generator.hasDoubleMove(106, new int[]{0, 0, 0, 1, 0}, occupied)).isFalse();
+		}
+	}
+
+	@Test public void testFirstHopsExpandToDoubleMoves() throws IOException {
+		// one of each ticket but two taxis, so only the taxi can be used for both hops
+		int[] tickets = {2, 1, 1, 1, 1};
+		for (MoveGenerator generator : generators(new CompactGraph(ScotlandYard.standardGraph()))) {
+			var yellow = new Player(Detective.YELLOW, ScotlandYard.defaultDetectiveTickets(), 105);
+			long[] occupied = generator.occupancy(List.of(yellow));
+
+			var doubles = new MoveList();
+			generator.doubleMoves(MRX, 106, tickets, occupied, doubles);
+			var firstHops = new MoveList();
+			generator.doubleMovePrefixes(MRX, 106, tickets, occupied, firstHops);
+			var expanded = new MoveList();
+			for (int i = 0; i < firstHops.size(); i++)
+				generator.doubleMovesAfter(firstHops.get(i), tickets, occupied, expanded);
+
+			assertThat(doubles.size()).isGreaterThan(0);
+			assertThat(expanded.toArray()).containsExactlyInAnyOrder(doubles.toArray());
+			for (Move move : doubles.toMoves()) {
+				var doubleMove = (DoubleMove) move;
+				if (doubleMove.ticket1 == doubleMove.ticket2)
+					assertThat(doubleMove.ticket2).as("ticket spent twice by %s", move)
+							.isEqualTo(Ticket.TAXI);
+			}
+			assertThat(doubles.toMoves()).anySatisfy(move -> {
+				assertThat(((DoubleMove) move).ticket1).isEqualTo(Ticket.TAXI);
+				assertThat(((DoubleMove) move).ticket2).isEqualTo(Ticket.TAXI);
+			});
+		}
+	}
+
+	@Test public void testGeneratorsAgreeOnRandomMaps() {
+		var random = new Random(5);
+		for (int map = 0; map < 20; map++) {
+			// stations spread up to the largest node the bitsets are used for
+			int size = 2 + random.nextInt(300);
+			var dense = randomGraph(size, size + random.nextInt(3 * size), random);
+			int spread = MoveGenerator.BITBOARD_MAX_NODE / size;
+			MutableValueGraph<Integer, ImmutableSet<Transport>> graph =
+					ValueGraphBuilder.undirected().build();
+			for (var edge : dense.edges())
+				graph.putEdgeValue(edge.nodeU() * spread, edge.nodeV() * spread,
+						dense.edgeValue(edge).orElseThrow());
+			var nodes = List.copyOf(graph.nodes());
+			var generators = generators(new CompactGraph(graph));
+
+			for (int run = 0; run < 100; run++) {
+				int source = nodes.get(random.nextInt(nodes.size()));
+				int[] tickets = new int[Ticket.values().length];
+				for (int i = 0; i < tickets.length; i++) tickets[i] = random.nextInt(3);
+				List<Player> detectives = new ArrayList<>();
+				for (int node : nodes)
+					if (node != source && random.nextInt(4) == 0)
+						detectives.add(new Player(Detective.RED, ScotlandYard.defaultDetectiveTickets(), node));
+
+				List<long[]> encoded = new ArrayList<>();
+				List<Boolean> found = new ArrayList<>();
+				for (MoveGenerator generator : generators) {
+					long[] bits = generator.occupancy(detectives);
+					var all = new MoveList();
+					generator.singleMoves(MRX, source, tickets, bits, all);
+					generator.doubleMoves(MRX, source, tickets, bits, all);
+					generator.doubleMovePrefixes(MRX, source, tickets, bits, all);
+					encoded.add(all.toArray());
+					found.add(generator.hasSingleMove(source, tickets, bits));
+					found.add(generator.hasDoubleMove(source, tickets, bits));
+				}
+				assertThat(encoded.get(1)).isEqualTo(encoded.get(0));
+				assertThat(found.subList(2, 4)).isEqualTo(found.subList(0, 2));
+			}
+		}
+	}
+
+	@Test public void testRejectsNodesMovesCannotHold() {
+		MutableValueGraph<Integer, ImmutableSet<Transport>> graph =
+				ValueGraphBuilder.undirected().build();
+		graph.putEdgeValue(1, MoveCodec.MAX_NODE, ImmutableSet.of(Transport.TAXI));
+		assertThat(new GameSetup(ImmutableValueGraph.copyOf(graph), ScotlandYard.STANDARD24MOVES)
+				.moveGenerator().contains(MoveCodec.MAX_NODE)).isTrue();
+
+		graph.putEdgeValue(1, MoveCodec.MAX_NODE + 1, ImmutableSet.of(Transport.TAXI));
+		var tooLarge = ImmutableValueGraph.copyOf(graph);
+		assertThatThrownBy(() -> new GameSetup(tooLarge, ScotlandYard.STANDARD24MOVES))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining(String.valueOf(MoveCodec.MAX_NODE + 1));
+		assertThatThrownBy(() -> new CompactGraph(tooLarge))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> ScotlandYard.readCompactGraph(
+				new StringReader("2 1\n1\n" + Integer.MAX_VALUE + "\n1 " + Integer.MAX_VALUE + " taxi\n")))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining(String.valueOf(Integer.MAX_VALUE));
+	}
+
+	@Test public void testStandardMapUsesBitsets() throws IOException {
+		var setup = standardSetup();
+		assertThat(setup.moveGenerator()).isInstanceOf(BitboardMoveGenerator.class);
+	}
+}
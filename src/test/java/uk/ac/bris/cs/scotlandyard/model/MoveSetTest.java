@@ -0,0 +1,87 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.Move.DoubleMove;
+import uk.ac.bris.cs.scotlandyard.model.Move.SingleMove;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.GameFixtures.playOut;
+import static uk.ac.bris.cs.scotlandyard.model.GameFixtures.sixPlayerGame;
+import static uk.ac.bris.cs.scotlandyard.model.GameFixtures.standardSetup;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.BUS;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.SECRET;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.TAXI;
+
+/**
+ * Tests the set of encoded moves and the available moves game states decode from it
+ */
+public class MoveSetTest {
+
+	@Test public void testLookupsOnEncodings() throws IOException {
+		var single = new SingleMove(MRX, 1, TAXI, 8);
+		var doubleMove = new DoubleMove(MRX, 1, TAXI, 8, BUS, 58);
+		var list = new MoveList(1);
+		list.add(single);
+		list.add(doubleMove);
+		list.add(single);
+
+		var set = new MoveSet(list);
+		assertThat(set.size()).isEqualTo(2);
+		assertThat(set.contains(single)).isTrue();
+		assertThat(set.contains(MoveCodec.encode(doubleMove))).isTrue();
+		assertThat(set.contains(new SingleMove(MRX, 1, SECRET, 8))).isFalse();
+		assertThat(set.contains((Move) null)).isFalse();
+		assertThat(set.contains(new SingleMove(MRX, 1, TAXI, MoveCodec.MAX_NODE + 1))).isFalse();
+		assertThat(set.contains(-1L)).isFalse();
+		assertThat(set.toMoves(standardSetup().moveTable())).containsExactly(single, doubleMove);
+	}
+
+	// the moves of the pieces left to play, straight from the generator
+	private static MoveSet generated(GameState state) {
+		var generator = state.getSetup().moveGenerator();
+		long[] occupied = new long[generator.words()];
+		for (Piece piece : state.getPlayers())
+			if (piece.isDetective()) occupied[state.locationOf(piece) >>> 6] |= 1L << state.locationOf(piece);
+
+		var moves = new MoveList();
+		for (Piece piece : MyGameStateFactory.remainingOf(state)) {
+			int[] tickets = new int[Ticket.values().length];
+			for (Ticket ticket : Ticket.values()) tickets[ticket.ordinal()] = state.ticketCount(piece, ticket);
+			int source = piece.isMrX() ?
+					MyGameStateFactory.mrXLocationOf(state).orElseThrow() : state.locationOf(piece);
+			generator.singleMoves(piece, source, tickets, occupied, moves);
+			if (piece.isMrX() && state.getSetup().moves.size() - state.getMrXTravelLog().size() >= 2)
+				generator.doubleMoves(piece, source, tickets, occupied, moves);
+		}
+		return new MoveSet(moves);
+	}
+
+	@Test public void testAvailableMovesAreDecodedOnceFromTheGeneratedMoves() throws IOException {
+		var random = new Random(3);
+		GameState start = sixPlayerGame();
+		var table = start.getSetup().moveTable();
+		playOut(start, random, (state, move) -> {
+			var expected = generated(state);
+			// counted and streamed straight from the encoded moves
+			assertThat(state.countAvailableMoves()).isEqualTo(expected.size());
+			var moves = state.getAvailableMoves();
+			assertThat(moves).containsExactlyInAnyOrderElementsOf(expected.toMoves(table));
+			// decoded the first time they are asked for, and kept
+			assertThat(state.getAvailableMoves()).isSameAs(moves);
+			for (Move available : moves) {
+				if (available instanceof SingleMove) {
+					var single = (SingleMove) available;
+					assertThat(available).isSameAs(table.single(single.commencedBy(),
+							single.source(), single.ticket, single.destination));
+				}
+			}
+		});
+	}
+}
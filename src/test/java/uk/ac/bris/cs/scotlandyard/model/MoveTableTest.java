@@ -0,0 +1,52 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import uk.ac.bris.cs.scotlandyard.model.Move.SingleMove;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.GameFixtures.standardSetup;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.BUS;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.SECRET;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.TAXI;
+
+/**
+ * Tests interning of moves per setup
+ */
+public class MoveTableTest {
+
+	private static GameSetup setup() throws IOException {
+		return standardSetup();
+	}
+
+	@Test public void testSingleMovesAlongEdgesAreInterned() throws IOException {
+		var table = setup().moveTable();
+		var move = table.single(MRX, 1, TAXI, 8);
+		assertThat(move).isSameAs(table.single(MRX, 1, TAXI, 8))
+				.isSameAs(table.decode(MoveCodec.single(MRX, 1, TAXI, 8)))
+				.isEqualTo(new SingleMove(MRX, 1, TAXI, 8));
+		assertThat(table.single(MRX, 1, SECRET, 8)).isNotEqualTo(move);
+		assertThat(table.single(RED, 1, TAXI, 8)).isNotEqualTo(move);
+	}
+
+	@Test public void testMovesOffEdgesAreStillDecoded() throws IOException {
+		var table = setup().moveTable();
+		assertThat(table.single(MRX, 1, BUS, 2)).isEqualTo(new SingleMove(MRX, 1, BUS, 2));
+		assertThat(table.decode(MoveCodec.doubleMove(MRX, 1, TAXI, 8, BUS, 2)))
+				.isEqualTo(MoveCodec.decode(MoveCodec.doubleMove(MRX, 1, TAXI, 8, BUS, 2)));
+	}
+
+	@Test public void testGeneratedMovesAreShared() throws IOException {
+		var setup = setup();
+		var player = new Player(MRX, ScotlandYard.defaultMrXTickets(), 1);
+		var occupied = setup.moveGenerator().occupancy(List.of());
+		var first = setup.moveGenerator().singleMoves(player, 1, occupied);
+		var second = setup.moveGenerator().singleMoves(player, 1, occupied);
+		for (int i = 0; i < first.size(); i++) assertThat(first.get(i)).isSameAs(second.get(i));
+	}
+}
@@ -0,0 +1,140 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.GameFixtures.playOut;
+import static uk.ac.bris.cs.scotlandyard.model.GameFixtures.sixPlayerGame;
+import static uk.ac.bris.cs.scotlandyard.model.GameFixtures.standardSetup;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.GREEN;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.BUS;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.DOUBLE;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.SECRET;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.TAXI;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.UNDERGROUND;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+
+/**
+ * Tests that the mutable game state plays exactly like the immutable one
+ */
+public class MutableGameStateTest {
+
+	@Test public void testMatchesImmutableStateThroughRandomGames() throws IOException {
+		var random = new Random(42);
+		for (int game = 0; game < 20; game++) {
+			GameState start = sixPlayerGame();
+			var mutable = MutableGameState.of(start);
+			var played = new ArrayList<ImmutableBoard>();
+			GameState end = playOut(start, random, (state, move) -> {
+				played.add(new ImmutableBoard(state));
+				assertThat(new ImmutableBoard(mutable)).isEqualTo(played.get(played.size() - 1));
+				mutable.play(move);
+			});
+			assertThat(new ImmutableBoard(mutable)).isEqualTo(new ImmutableBoard(end));
+			assertThat(mutable.isGameOver()).isTrue();
+
+			// take everything back, one move at a time
+			for (int i = played.size() - 1; i >= 0; i--) {
+				mutable.undo();
+				assertThat(new ImmutableBoard(mutable)).isEqualTo(played.get(i));
+			}
+			assertThat(mutable.depth()).isZero();
+		}
+	}
+
+	@Test public void testMrXWithoutATicketIsNotGivenIt() throws IOException {
+		// MrX's ticket map leaves out the bus, so detectives' bus tickets are not handed to him
+		var tickets = ImmutableMap.of(TAXI, 4, UNDERGROUND, 3, DOUBLE, 2, SECRET, 5);
+		var random = new Random(8);
+		for (int game = 0; game < 10; game++) {
+			GameState start = new MyGameStateFactory().build(standardSetup(),
+					new Player(MRX, tickets, 106),
+					new Player(RED, defaultDetectiveTickets(), 91),
+					new Player(GREEN, defaultDetectiveTickets(), 29),
+					new Player(BLUE, defaultDetectiveTickets(), 94));
+			var mutable = MutableGameState.of(start);
+			var played = new ArrayList<ImmutableBoard>();
+			GameState end = playOut(start, random, (state, move) -> {
+				played.add(new ImmutableBoard(state));
+				assertThat(new ImmutableBoard(mutable)).isEqualTo(played.get(played.size() - 1));
+				mutable.play(move);
+				assertThat(mutable.ticketCount(MRX, BUS)).isZero();
+			});
+			assertThat(new ImmutableBoard(mutable)).isEqualTo(new ImmutableBoard(end));
+			assertThat(mutable.zobristKey()).isEqualTo(end.zobristKey());
+
+			// a copy keeps the ticket map, and so does the game state it converts back to
+			var copy = MutableGameState.of(mutable);
+			var back = mutable.toGameState();
+			for (int i = played.size() - 1; i >= 0; i--) {
+				mutable.undo();
+				assertThat(new ImmutableBoard(mutable)).isEqualTo(played.get(i));
+				assertThat(mutable.ticketCount(MRX, BUS)).isZero();
+			}
+			assertThat(back.getPlayerTickets(MRX).orElseThrow().getCount(BUS)).isZero();
+			assertThat(new ImmutableBoard(MutableGameState.of(copy.toGameState())))
+					.isEqualTo(new ImmutableBoard(end));
+		}
+	}
+
+	@Test public void testMrXWithPartialTicketMapMatchesThroughRandomGames() throws IOException {
+		// few tickets and no bus or underground in the map, so MrX is often left stuck
+		var tickets = ImmutableMap.of(TAXI, 2, SECRET, 1, DOUBLE, 1);
+		var random = new Random(11);
+		for (int game = 0; game < 50; game++) {
+			GameState start = new MyGameStateFactory().build(standardSetup(),
+					new Player(MRX, tickets, 106),
+					new Player(RED, defaultDetectiveTickets(), 91),
+					new Player(GREEN, defaultDetectiveTickets(), 29),
+					new Player(BLUE, defaultDetectiveTickets(), 94));
+			var mutable = MutableGameState.of(start);
+			GameState end = playOut(start, random, (state, move) -> {
+				assertThat(mutable.remaining()).isEqualTo(MyGameStateFactory.remainingOf(state));
+				assertThat(new ImmutableBoard(mutable)).isEqualTo(new ImmutableBoard(state));
+				mutable.play(move);
+				for (var ticket : ScotlandYard.Ticket.values())
+					assertThat(mutable.ticketCount(MRX, ticket)).isNotNegative();
+			});
+			assertThat(mutable.remaining()).isEqualTo(MyGameStateFactory.remainingOf(end));
+			assertThat(new ImmutableBoard(mutable)).isEqualTo(new ImmutableBoard(end));
+		}
+	}
+
+	@Test public void testEncodedMovesMatchAvailableMoves() throws IOException {
+		var state = sixPlayerGame();
+		var mutable = MutableGameState.of(state);
+		var moves = new MoveList();
+		mutable.availableMoves(moves);
+		assertThat(moves.toMoves()).containsExactlyInAnyOrderElementsOf(state.getAvailableMoves());
+	}
+
+	@Test public void testConvertsBackToGameState() throws IOException {
+		var mutable = MutableGameState.of(sixPlayerGame());
+		mutable.play(new Move.SingleMove(MRX, 106, TAXI, 105));
+		assertThat(mutable.mrXLocation()).isEqualTo(105);
+		assertThat(mutable.locationOf(MRX)).isEqualTo(-1);
+		assertThat(mutable.ticketCount(MRX, TAXI)).isEqualTo(3);
+
+		GameState state = mutable.toGameState();
+		assertThat(new ImmutableBoard(state)).isEqualTo(new ImmutableBoard(mutable));
+		assertThat(state.getMrXTravelLog()).isEqualTo(ImmutableList.of(LogEntry.hidden(TAXI)));
+	}
+
+	@Test public void testUndoWithoutMovesShouldThrow() throws IOException {
+		var mutable = MutableGameState.of(sixPlayerGame());
+		assertThatThrownBy(mutable::undo).isInstanceOf(IllegalStateException.class);
+	}
+}
@@ -0,0 +1,100 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableMap;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.GameFixtures.playOut;
+import static uk.ac.bris.cs.scotlandyard.model.GameFixtures.sixPlayerGame;
+import static uk.ac.bris.cs.scotlandyard.model.GameFixtures.standardSetup;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.BUS;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.DOUBLE;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.SECRET;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.TAXI;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.UNDERGROUND;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Tests packing whole positions into longs
+ */
+public class PackedGameStateTest {
+
+	private static void assertRoundTrips(GameState state, long[] positions) {
+		var packed = PackedGameState.of(state);
+		assertThat(packed.toImmutableBoard(state.getSetup()))
+				.isEqualTo(new ImmutableBoard(state));
+		assertThat(packed.logSize()).isEqualTo(state.getMrXTravelLog().size());
+
+		packed.writeTo(positions, PackedGameState.WORDS * 2);
+		assertThat(PackedGameState.readFrom(positions, PackedGameState.WORDS * 2))
+				.isEqualTo(packed);
+	}
+
+	@Test public void testRoundTripThroughRandomGames() throws IOException {
+		var random = new Random(3);
+		long[] positions = new long[PackedGameState.WORDS * 4];
+		for (int game = 0; game < 10; game++) {
+			GameState end = playOut(sixPlayerGame(), random,
+					(state, move) -> assertRoundTrips(state, positions));
+			assertRoundTrips(end, positions);
+		}
+	}
+
+	@Test public void testKeepsTicketMaps() throws IOException {
+		// MrX cannot be given bus tickets and RED's map leaves out the double move ticket
+		var tickets = ImmutableMap.of(TAXI, 4, UNDERGROUND, 3, DOUBLE, 2, SECRET, 5);
+		var redTickets = ImmutableMap.of(TAXI, 11, BUS, 8, UNDERGROUND, 4, SECRET, 0);
+		var random = new Random(5);
+		for (int game = 0; game < 10; game++) {
+			GameState start = new MyGameStateFactory().build(standardSetup(),
+					new Player(MRX, tickets, 106),
+					new Player(RED, redTickets, 91),
+					new Player(BLUE, defaultDetectiveTickets(), 94));
+			var packed = PackedGameState.of(start);
+			assertThat(packed.inTicketMap(MRX, BUS)).isFalse();
+			assertThat(packed.inTicketMap(RED, DOUBLE)).isFalse();
+			assertThat(packed.inTicketMap(RED, SECRET)).isTrue();
+
+			// the unpacked state hands out tickets exactly like the one it was packed from
+			var unpacked = MutableGameState.of(packed.toGameState(start.getSetup()));
+			GameState end = playOut(start, random, (state, move) -> {
+				assertThat(new ImmutableBoard(unpacked)).isEqualTo(new ImmutableBoard(state));
+				assertThat(PackedGameState.of(state)).isEqualTo(PackedGameState.of(unpacked));
+				unpacked.play(move);
+			});
+			assertThat(new ImmutableBoard(unpacked)).isEqualTo(new ImmutableBoard(end));
+			assertThat(PackedGameState.of(end).toGameState(end.getSetup())
+					.getPlayerTickets(MRX).orElseThrow().getCount(BUS)).isZero();
+		}
+	}
+
+	@Test public void testQueries() throws IOException {
+		var packed = PackedGameState.of(sixPlayerGame());
+		assertThat(packed.locationOf(MRX)).isEqualTo(106);
+		assertThat(packed.locationOf(BLUE)).isEqualTo(94);
+		assertThat(packed.ticketCount(RED, TAXI)).isEqualTo(11);
+		assertThat(packed.isRemaining(MRX)).isTrue();
+		assertThat(packed.isRemaining(RED)).isFalse();
+		assertThat(packed.inTicketMap(RED, DOUBLE)).isTrue();
+	}
+
+	@Test public void testPositionOutOfLimitsShouldThrow() throws IOException {
+		var setup = standardSetup();
+		var state = new MyGameStateFactory().build(setup,
+				new Player(MRX, defaultMrXTickets(), 106),
+				new Player(RED, defaultDetectiveTickets(), 91));
+		assertThatThrownBy(() -> PackedGameState.of(state, PackedGameState.MAX_NODE + 1))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+}
@@ -0,0 +1,52 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableMap;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.BUS;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.DOUBLE;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.SECRET;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.TAXI;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Tests the packed ticket counters of players
+ */
+public class PlayerTest {
+
+	@Test public void testUseAndGiveUpdateTicketsMap() {
+		var mrX = new Player(MRX, defaultMrXTickets(), 45);
+		var moved = mrX.use(TAXI).use(DOUBLE).give(SECRET);
+		assertThat(moved.tickets()).containsEntry(TAXI, 3).containsEntry(DOUBLE, 1)
+				.containsEntry(SECRET, 6).hasSize(5);
+		assertThat(moved.use(DOUBLE).has(DOUBLE)).isFalse();
+		assertThat(moved.give(TAXI).give(DOUBLE).give(SECRET).use(SECRET)
+				.use(DOUBLE).use(TAXI)).isEqualTo(moved);
+	}
+
+	@Test public void testGivingTicketMissingFromMapDoesNothing() {
+		var red = new Player(RED, ImmutableMap.of(TAXI, 1), 10);
+		var given = red.give(BUS);
+		assertThat(given.tickets()).isEqualTo(ImmutableMap.of(TAXI, 1));
+		assertThat(given.has(BUS)).isFalse();
+		assertThat(given).isEqualTo(red).hasSameHashCodeAs(red);
+	}
+
+	@Test public void testUsingMissingTicketShouldThrow() {
+		var red = new Player(RED, ImmutableMap.of(TAXI, 0), 10);
+		assertThatThrownBy(() -> red.use(TAXI)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> red.use(BUS)).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test public void testOutOfRangeCountShouldThrow() {
+		assertThatThrownBy(() -> new Player(RED, ImmutableMap.of(TAXI, -1), 10))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> new Player(RED, ImmutableMap.of(TAXI, Player.MAX_COUNT + 1), 10))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+}
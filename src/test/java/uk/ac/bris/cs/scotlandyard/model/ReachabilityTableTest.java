@@ -0,0 +1,86 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.ImmutableValueGraph;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.Map;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.GameFixtures.standardSetup;
+
+/**
+ * Tests the ticket limited reachability against trying every sequence of tickets
+ */
+public class ReachabilityTableTest {
+
+	private static void explore(ImmutableValueGraph<Integer, ImmutableSet<Transport>> graph,
+	                            int node, Map<Ticket, Integer> tickets, int moves, BitSet out) {
+		out.set(node);
+		if (moves == 0) return;
+		for (int neighbour : graph.adjacentNodes(node)) {
+			for (Transport transport : graph.edgeValue(node, neighbour).orElseThrow()) {
+				for (Ticket ticket : new Ticket[]{transport.requiredTicket(), Ticket.SECRET}) {
+					if (tickets.get(ticket) == 0) continue;
+					tickets.merge(ticket, -1, Integer::sum);
+					explore(graph, neighbour, tickets, moves - 1, out);
+					tickets.merge(ticket, 1, Integer::sum);
+				}
+			}
+		}
+	}
+
+	private static Player player(int location, int taxi, int bus, int underground, int secret) {
+		return new Player(Piece.Detective.RED, ImmutableMap.of(Ticket.TAXI, taxi, Ticket.BUS, bus,
+				Ticket.UNDERGROUND, underground, Ticket.SECRET, secret, Ticket.DOUBLE, 0), location);
+	}
+
+	@Test public void testReachableMatchesExhaustiveSearch() throws IOException {
+		var graph = ScotlandYard.standardGraph();
+		var table = new GameSetup(graph, ScotlandYard.STANDARD24MOVES).reachabilityTable();
+		int[][] budgets = {{0, 0, 0, 0}, {1, 0, 0, 0}, {2, 1, 0, 0}, {1, 1, 1, 0}, {0, 2, 1, 1}, {3, 1, 0, 0}};
+		for (int source : new int[]{1, 46, 89, 157, 194}) {
+			for (int[] budget : budgets) {
+				for (int moves = 0; moves <= 4; moves++) {
+					Player player = player(source, budget[0], budget[1], budget[2], budget[3]);
+					var tickets = new EnumMap<Ticket, Integer>(player.tickets());
+					var expected = new BitSet();
+					explore(graph, source, tickets, moves, expected);
+					assertThat(table.reachable(player, moves)).isEqualTo(expected);
+				}
+			}
+		}
+	}
+
+	@Test public void testPlentyOfTicketsMatchesDistances() throws IOException {
+		var setup = standardSetup();
+		Player player = player(67, 30, 30, 30, 0);
+		for (int moves = 0; moves <= 5; moves++) {
+			var reachable = setup.reachabilityTable().reachable(player, moves);
+			for (int node = 1; node <= 199; node++) {
+				int distance = setup.distanceTable().distance(67, node, DistanceTable.DETECTIVE);
+				assertThat(reachable.get(node)).isEqualTo(distance >= 0 && distance <= moves);
+			}
+		}
+	}
+
+	@Test public void testAnswersAreCopies() throws IOException {
+		var table = new ReachabilityTable(new CompactGraph(ScotlandYard.standardGraph()));
+		Player player = player(1, 4, 0, 0, 0);
+		table.reachable(player, 2).clear();
+		assertThat(table.reachable(player, 2).get(1)).isTrue();
+		assertThatThrownBy(() -> table.reachable(player, ReachabilityTable.MAX_MOVES + 1))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> table.reachable(player(0, 1, 1, 1, 1), 1))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+}
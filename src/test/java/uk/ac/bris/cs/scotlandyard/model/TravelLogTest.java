@@ -0,0 +1,74 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.Move.SingleMove;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.GameFixtures.sixPlayerGame;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.YELLOW;
+
+/**
+ * Tests for the persistent travel log behind {@link GameState#getMrXTravelLog()}
+ */
+public class TravelLogTest {
+
+	@Test public void testAppendLeavesTheLogItCameFrom() {
+		TravelLog one = TravelLog.EMPTY.append(LogEntry.hidden(Ticket.TAXI));
+		TravelLog left = one.append(LogEntry.reveal(Ticket.BUS, 42));
+		TravelLog right = one.append(LogEntry.hidden(Ticket.SECRET));
+
+		assertThat(TravelLog.EMPTY.asList()).isEmpty();
+		assertThat(one.asList()).containsExactly(LogEntry.hidden(Ticket.TAXI));
+		assertThat(left.asList()).containsExactly(
+				LogEntry.hidden(Ticket.TAXI), LogEntry.reveal(Ticket.BUS, 42));
+		assertThat(right.asList()).containsExactly(
+				LogEntry.hidden(Ticket.TAXI), LogEntry.hidden(Ticket.SECRET));
+		assertThat(left.size()).isEqualTo(2);
+		assertThat(left.get(0)).isEqualTo(LogEntry.hidden(Ticket.TAXI));
+		assertThat(right.get(1)).isEqualTo(LogEntry.hidden(Ticket.SECRET));
+		assertThatThrownBy(() -> left.get(2)).isInstanceOf(IndexOutOfBoundsException.class);
+		assertThat(left.asList()).isSameAs(left.asList());
+	}
+
+	@Test public void testBranchesAndLongLogsKeepTheirOwnEntries() {
+		// appending twice at every length makes one branch take the shared slot and one copy
+		TravelLog log = TravelLog.EMPTY;
+		var expected = new ArrayList<LogEntry>();
+		for (int i = 0; i < 100; i++) {
+			TravelLog branch = log.append(LogEntry.hidden(Ticket.SECRET));
+			log = log.append(LogEntry.reveal(Ticket.TAXI, i + 1));
+			expected.add(LogEntry.reveal(Ticket.TAXI, i + 1));
+			assertThat(branch.get(i)).isEqualTo(LogEntry.hidden(Ticket.SECRET));
+			assertThat(branch.asList().subList(0, i)).isEqualTo(expected.subList(0, i));
+			assertThat(log.asList()).isEqualTo(expected);
+		}
+		assertThat(log.get(99)).isEqualTo(LogEntry.reveal(Ticket.TAXI, 100));
+	}
+
+	@Test public void testOfKeepsTheGivenList() {
+		var entries = ImmutableList.of(LogEntry.hidden(Ticket.TAXI), LogEntry.reveal(Ticket.BUS, 7));
+		TravelLog log = TravelLog.of(entries);
+		assertThat(log.asList()).isSameAs(entries);
+		assertThat(log.append(LogEntry.hidden(Ticket.TAXI)).asList())
+				.containsExactly(LogEntry.hidden(Ticket.TAXI), LogEntry.reveal(Ticket.BUS, 7),
+						LogEntry.hidden(Ticket.TAXI));
+	}
+
+	@Test public void testDetectiveMovesShareTheLog() throws IOException {
+		GameState afterMrX = sixPlayerGame()
+				.advance(new SingleMove(Piece.MrX.MRX, 106, Ticket.TAXI, 105));
+		var log = afterMrX.getMrXTravelLog();
+		GameState afterYellow = afterMrX.advance(new SingleMove(YELLOW, 138, Ticket.TAXI, 152));
+		// the whole log is shared, so the list made for it is too
+		assertThat(afterYellow.getMrXTravelLog()).isSameAs(log);
+	}
+}
@@ -0,0 +1,50 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.GameFixtures.playOut;
+import static uk.ac.bris.cs.scotlandyard.model.GameFixtures.roundStart;
+import static uk.ac.bris.cs.scotlandyard.model.GameFixtures.sixPlayerGame;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.GREEN;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.BUS;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.TAXI;
+
+/**
+ * Tests the incrementally updated Zobrist keys of game states
+ */
+public class ZobristTest {
+
+	@Test public void testIncrementalKeyMatchesKeyFromScratch() throws IOException {
+		var random = new Random(7);
+		for (int game = 0; game < 10; game++) {
+			GameState start = sixPlayerGame();
+			var mutable = MutableGameState.of(start);
+			GameState end = playOut(start, random, (state, move) -> {
+				assertThat(state.zobristKey()).isEqualTo(Zobrist.hash(state));
+				assertThat(mutable.zobristKey()).isEqualTo(state.zobristKey());
+				mutable.play(move);
+			});
+			assertThat(mutable.zobristKey()).isEqualTo(end.zobristKey());
+		}
+	}
+
+	@Test public void testTranspositionsHaveEqualKeys() throws IOException {
+		GameState a = roundStart()
+				.advance(new Move.SingleMove(BLUE, 94, BUS, 77))
+				.advance(new Move.SingleMove(GREEN, 29, TAXI, 41));
+		GameState b = roundStart()
+				.advance(new Move.SingleMove(GREEN, 29, TAXI, 41))
+				.advance(new Move.SingleMove(BLUE, 94, BUS, 77));
+		assertThat(a.zobristKey()).isEqualTo(b.zobristKey());
+		assertThat(a.advance(new Move.SingleMove(RED, 91, TAXI, 72)).zobristKey())
+				.isNotEqualTo(a.zobristKey());
+	}
+}